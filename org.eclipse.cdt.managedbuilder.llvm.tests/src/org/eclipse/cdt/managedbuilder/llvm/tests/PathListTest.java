@@ -0,0 +1,123 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2013 Nokia Siemens Networks Oyj, Finland.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *      Nokia Siemens Networks - initial implementation
+ *******************************************************************************/
+package org.eclipse.cdt.managedbuilder.llvm.tests;
+
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+import org.eclipse.cdt.managedbuilder.llvm.util.PathList;
+import org.eclipse.cdt.managedbuilder.llvm.util.Separators;
+
+/**
+ * Tests the parsing, joining, modification and exact matching of PathList.
+ *
+ */
+public class PathListTest extends TestCase {
+
+	//path separator of the platform
+	private static final String SEP = Separators.getPathSeparator();
+
+	public PathListTest(String name) {
+		super(name);
+	}
+
+	public void testParseJoinRoundTrip() {
+		String joined = "/usr/include" + SEP + "/opt/sdk/include" + SEP + "m"; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		PathList list = PathList.parse(joined);
+		assertEquals(Arrays.asList(new String[] {"/usr/include", "/opt/sdk/include", "m"}), //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+				list.asList());
+		assertEquals(joined, list.join());
+		assertEquals(list, PathList.parse(list.join()));
+	}
+
+	public void testParseIgnoresEmptySegments() {
+		String joined = SEP + "a" + SEP + SEP + "b" + SEP; //$NON-NLS-1$ //$NON-NLS-2$
+		PathList list = PathList.parse(joined);
+		assertEquals(Arrays.asList(new String[] {"a", "b"}), list.asList()); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals("a" + SEP + "b", list.join()); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	public void testParseEmpty() {
+		assertSame(PathList.EMPTY, PathList.parse(null));
+		assertSame(PathList.EMPTY, PathList.parse("")); //$NON-NLS-1$
+		assertSame(PathList.EMPTY, PathList.parse(SEP + SEP));
+		assertEquals("", PathList.EMPTY.join()); //$NON-NLS-1$
+	}
+
+	public void testParseDropsDuplicates() {
+		PathList list = PathList.parse("a" + SEP + "b" + SEP + "a"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		assertEquals(Arrays.asList(new String[] {"a", "b"}), list.asList()); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	public void testWithReturnsSameInstanceIfUnchanged() {
+		PathList list = PathList.of(new String[] {"a", "b"}); //$NON-NLS-1$ //$NON-NLS-2$
+		assertSame(list, list.with("a")); //$NON-NLS-1$
+		assertSame(list, list.with("")); //$NON-NLS-1$
+		assertSame(list, list.with(null));
+		assertSame(list, list.withAll(new String[] {"b", "a"})); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	public void testWithAppends() {
+		PathList list = PathList.of(new String[] {"a"}); //$NON-NLS-1$
+		PathList added = list.with("b"); //$NON-NLS-1$
+		assertNotSame(list, added);
+		assertEquals(Arrays.asList(new String[] {"a", "b"}), added.asList()); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals("a" + SEP + "b", added.join()); //$NON-NLS-1$ //$NON-NLS-2$
+		//the original list is not modified
+		assertEquals(1, list.size());
+	}
+
+	public void testWithoutReturnsSameInstanceIfUnchanged() {
+		PathList list = PathList.of(new String[] {"a", "b"}); //$NON-NLS-1$ //$NON-NLS-2$
+		assertSame(list, list.without("c")); //$NON-NLS-1$
+		assertSame(list, list.without(null));
+	}
+
+	public void testWithoutRemoves() {
+		PathList list = PathList.of(new String[] {"a", "b", "c"}); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		PathList removed = list.without("b"); //$NON-NLS-1$
+		assertEquals(Arrays.asList(new String[] {"a", "c"}), removed.asList()); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals("a" + SEP + "c", removed.join()); //$NON-NLS-1$ //$NON-NLS-2$
+		assertSame(PathList.EMPTY, PathList.of(new String[] {"a"}).without("a")); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	public void testExactMatching() {
+		PathList list = PathList.of(new String[] {"pthread_m"}); //$NON-NLS-1$
+		assertFalse(list.contains("m")); //$NON-NLS-1$
+		assertFalse(list.contains("pthread")); //$NON-NLS-1$
+		assertTrue(list.contains("pthread_m")); //$NON-NLS-1$
+		//a library that is a substring of another one is added and removed on its own
+		PathList added = list.with("m"); //$NON-NLS-1$
+		assertEquals(2, added.size());
+		assertSame(added, added.without("thread_m")); //$NON-NLS-1$
+		assertEquals(Arrays.asList(new String[] {"pthread_m"}), added.without("m").asList()); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	public void testContainsLargeList() {
+		String[] values = new String[20];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = "lib" + i; //$NON-NLS-1$
+		}
+		PathList list = PathList.of(values);
+		//lists with more than 8 values are searched with a set
+		for (String value : values) {
+			assertTrue(list.contains(value));
+		}
+		assertFalse(list.contains("lib")); //$NON-NLS-1$
+		assertFalse(list.contains("lib1 ")); //$NON-NLS-1$
+		assertFalse(list.contains(null));
+		assertSame(list, list.with("lib19")); //$NON-NLS-1$
+		assertFalse(list.without("lib7").contains("lib7")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertTrue(list.without("lib7").contains("lib17")); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+}
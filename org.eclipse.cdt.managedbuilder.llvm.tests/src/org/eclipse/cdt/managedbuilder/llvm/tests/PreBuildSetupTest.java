@@ -0,0 +1,165 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2013 Nokia Siemens Networks Oyj, Finland.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *      Nokia Siemens Networks - initial implementation
+ *******************************************************************************/
+package org.eclipse.cdt.managedbuilder.llvm.tests;
+
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.eclipse.cdt.managedbuilder.llvm.ui.preferences.LlvmPreferenceStore;
+import org.eclipse.cdt.managedbuilder.llvm.util.LlvmResourceListener;
+import org.eclipse.cdt.managedbuilder.llvm.util.PreBuildSetup;
+import org.eclipse.cdt.managedbuilder.llvm.util.ProcessRunner;
+import org.eclipse.core.resources.IMarkerDelta;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.IResourceDelta;
+import org.eclipse.core.resources.IncrementalProjectBuilder;
+import org.eclipse.core.resources.ResourcesPlugin;
+
+/**
+ * Tests that the PRE_BUILD setup of the resource listener is only performed
+ * when its inputs change, and that the steady state of a build neither runs
+ * external tools nor writes the preferences.
+ *
+ */
+public class PreBuildSetupTest extends TestCase {
+
+	/**
+	 * Counts the processes started by the setup.
+	 */
+	private static class CountingRunner extends ProcessRunner {
+
+		int processes = 0;
+
+		@Override
+		public List<String> run(long timeoutMs, String... command) {
+			this.processes++;
+			return super.run(timeoutMs, command);
+		}
+	}
+
+	/**
+	 * Counts the preference writes of the setup instead of writing.
+	 */
+	private static class CountingWriter implements PreBuildSetup.IPreferenceWriter {
+
+		int writes = 0;
+
+		public void append(String name, String value) {
+			this.writes++;
+		}
+	}
+
+	private CountingRunner runner;
+	private CountingWriter writer;
+	private PreBuildSetup setup;
+	private LlvmResourceListener listener;
+	private String binPath;
+
+	public PreBuildSetupTest(String name) {
+		super(name);
+	}
+
+	@Override
+	protected void setUp() {
+		this.binPath = LlvmPreferenceStore.getBinPath();
+		this.runner = new CountingRunner();
+		this.writer = new CountingWriter();
+		this.setup = new PreBuildSetup(this.runner, this.writer);
+		//ignores the fingerprint saved by earlier tests
+		this.setup.reset();
+		this.listener = new LlvmResourceListener(this.setup);
+	}
+
+	@Override
+	protected void tearDown() {
+		LlvmPreferenceStore.setBinPath(this.binPath);
+	}
+
+	public void testFirstBuildPerformsSetup() {
+		preBuild(this.listener);
+		assertEquals(1, this.setup.getWorkCount());
+	}
+
+	public void testSteadyStateSpawnsNoProcessAndWritesNoPreferences() {
+		preBuild(this.listener);
+		this.runner.processes = 0;
+		this.writer.writes = 0;
+		for (int i = 0; i < 100; i++) {
+			preBuild(this.listener);
+		}
+		assertEquals(1, this.setup.getWorkCount());
+		assertEquals(0, this.runner.processes);
+		assertEquals(0, this.writer.writes);
+	}
+
+	public void testRestartDoesntPerformSetupAgain() {
+		preBuild(this.listener);
+		//a new instance loads the fingerprint saved by the first one
+		CountingRunner restartedRunner = new CountingRunner();
+		CountingWriter restartedWriter = new CountingWriter();
+		PreBuildSetup restarted = new PreBuildSetup(restartedRunner, restartedWriter);
+		preBuild(new LlvmResourceListener(restarted));
+		assertEquals(0, restarted.getWorkCount());
+		assertEquals(0, restartedRunner.processes);
+		assertEquals(0, restartedWriter.writes);
+	}
+
+	public void testChangedPreferencesPerformSetupOnce() {
+		preBuild(this.listener);
+		LlvmPreferenceStore.setBinPath(this.binPath + "-changed"); //$NON-NLS-1$
+		preBuild(this.listener);
+		preBuild(this.listener);
+		assertEquals(2, this.setup.getWorkCount());
+	}
+
+	public void testResetPerformsSetupAgain() {
+		preBuild(this.listener);
+		this.setup.reset();
+		preBuild(this.listener);
+		assertEquals(2, this.setup.getWorkCount());
+	}
+
+	/**
+	 * Sends a PRE_BUILD event of a workspace build to the listener.
+	 *
+	 * @param resourceListener Listener
+	 */
+	private static void preBuild(LlvmResourceListener resourceListener) {
+		resourceListener.resourceChanged(new IResourceChangeEvent() {
+			public IMarkerDelta[] findMarkerDeltas(String type, boolean includeSubtypes) {
+				return new IMarkerDelta[0];
+			}
+
+			public int getBuildKind() {
+				return IncrementalProjectBuilder.INCREMENTAL_BUILD;
+			}
+
+			public IResourceDelta getDelta() {
+				return null;
+			}
+
+			public IResource getResource() {
+				return null;
+			}
+
+			public Object getSource() {
+				return ResourcesPlugin.getWorkspace();
+			}
+
+			public int getType() {
+				return IResourceChangeEvent.PRE_BUILD;
+			}
+		});
+	}
+
+}
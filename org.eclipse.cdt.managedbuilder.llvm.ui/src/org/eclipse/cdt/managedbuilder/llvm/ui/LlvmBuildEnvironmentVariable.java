@@ -12,6 +12,7 @@
 package org.eclipse.cdt.managedbuilder.llvm.ui;
 
 import org.eclipse.cdt.managedbuilder.envvar.IBuildEnvironmentVariable;
+import org.eclipse.cdt.managedbuilder.llvm.util.PathList;
 
 /**
  * Implemented type that contains BuildEnvironmentalVariables.
@@ -22,6 +23,8 @@ public class LlvmBuildEnvironmentVariable implements IBuildEnvironmentVariable {
 	private final String name;
 	private final String value;
 	private final int operation;
+	//split form of the value, created when first needed
+	private volatile PathList pathList;
 
 	/**
 	 * Constructor.
@@ -37,6 +40,18 @@ public class LlvmBuildEnvironmentVariable implements IBuildEnvironmentVariable {
 		this.operation = operation;
 	}
 
+	/**
+	 * Constructor for a list of paths or libraries.
+	 * 
+	 * @param name Name for the environment variable
+	 * @param pathList Value for the environment variable
+	 * @param operation Operation of the environment variable
+	 */
+	public LlvmBuildEnvironmentVariable(String name, PathList pathList, int operation) {
+		this(name, pathList.join(), operation);
+		this.pathList = pathList;
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -94,5 +109,19 @@ public class LlvmBuildEnvironmentVariable implements IBuildEnvironmentVariable {
 	public String getValue() {
 		return this.value;
 	}
+
+	/**
+	 * Get value of the llvm environment variable as a list of paths or libraries.
+	 * 
+	 * @return PathList The value split by the path separator.
+	 */
+	public PathList getPathList() {
+		PathList list = this.pathList;
+		if (list == null) {
+			list = PathList.parse(this.value);
+			this.pathList = list;
+		}
+		return list;
+	}
 	
 }
\ No newline at end of file
@@ -13,18 +13,32 @@
 package org.eclipse.cdt.managedbuilder.llvm.ui;
 
 import java.io.File;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.eclipse.cdt.managedbuilder.core.IConfiguration;
+import org.eclipse.cdt.managedbuilder.core.ITool;
+import org.eclipse.cdt.managedbuilder.core.IToolChain;
 import org.eclipse.cdt.managedbuilder.envvar.IBuildEnvironmentVariable;
 import org.eclipse.cdt.managedbuilder.envvar.IConfigurationEnvironmentVariableSupplier;
 import org.eclipse.cdt.managedbuilder.envvar.IEnvironmentVariableProvider;
 import org.eclipse.cdt.managedbuilder.gnu.cygwin.GnuCygwinConfigurationEnvironmentSupplier;
 import org.eclipse.cdt.managedbuilder.gnu.mingw.MingwEnvironmentVariableSupplier;
-import org.eclipse.cdt.managedbuilder.llvm.ui.preferences.LlvmPreferenceStore;
+import org.eclipse.cdt.managedbuilder.llvm.ui.preferences.PreferenceConstants;
+import org.eclipse.cdt.managedbuilder.llvm.util.LlvmInstall;
+import org.eclipse.cdt.managedbuilder.llvm.util.LlvmInstallRegistry;
+import org.eclipse.cdt.managedbuilder.llvm.util.LlvmInvalidationBus;
+import org.eclipse.cdt.managedbuilder.llvm.util.LlvmToolOptionPathUtil;
+import org.eclipse.cdt.managedbuilder.llvm.util.PathList;
 import org.eclipse.cdt.managedbuilder.llvm.util.Separators;
+import org.eclipse.cdt.managedbuilder.llvm.util.ToolOptionCache;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
 import org.eclipse.core.runtime.IPath;
-import org.eclipse.core.runtime.Path;
 
 /**
  * Contains LLVM environment variables.
@@ -34,11 +48,12 @@ import org.eclipse.core.runtime.Path;
 public class LlvmEnvironmentVariableSupplier implements
 		IConfigurationEnvironmentVariableSupplier {
 
-	//toggle for preference changes
-	private static boolean preferencesChanged = true;
-	//LLVM environment variable data structure
-	private static HashMap<String, LlvmBuildEnvironmentVariable> llvmEnvironmentVariables = 
-		new HashMap<String, LlvmBuildEnvironmentVariable>(6);
+	//current LLVM environment variables, replaced as a whole on every change
+	private static final AtomicReference<Snapshot> snapshot =
+		new AtomicReference<Snapshot>(Snapshot.INITIAL);
+	//memoized environments of build configurations, configurations are weakly referenced
+	private static final Map<IConfiguration, ConfigurationEnvironment> configurationEnvironments =
+		new WeakHashMap<IConfiguration, ConfigurationEnvironment>();
 	//Environment variables for HashMap usage
 	private static final String ENV_VAR_NAME_LLVM_BIN 		= "LLVM_BIN_PATH"; //$NON-NLS-1$
 	private static final String ENV_VAR_NAME_LLVMINTERP 	= "LLVMINTERP"; //$NON-NLS-1$
@@ -49,12 +64,19 @@ public class LlvmEnvironmentVariableSupplier implements
 	
 	/**
 	 * Initializes llvm environment variable paths from the system environment variables.
+	 * 
+	 * @deprecated Not called by the plug-in. The environment of a build configuration
+	 * is computed from its Tool options and LLVM installation, see getVariables.
 	 */
-	public static void initializePaths() { //TODO: Is this actually called anywhere?
+	@Deprecated
+	public static void initializePaths() {
 		//get bin path
 		String binPath = getBinPath();
+		//collect the variables so that they are published together
+		Map<String, LlvmBuildEnvironmentVariable> vars = new HashMap<String, LlvmBuildEnvironmentVariable>(6);
 		//set LLVM bin path environment variable
-		setLlvmEnvironmentVariableReplace(ENV_VAR_NAME_LLVM_BIN, binPath);
+		vars.put(ENV_VAR_NAME_LLVM_BIN, new LlvmBuildEnvironmentVariable(
+				ENV_VAR_NAME_LLVM_BIN, binPath, IBuildEnvironmentVariable.ENVVAR_REPLACE));
 		//if bin path exists
 		if (binPath != null && binPath.length()!=0) {
 			String pathStr = binPath;
@@ -62,8 +84,7 @@ public class LlvmEnvironmentVariableSupplier implements
 			if (System.getProperty("os.name").toLowerCase().indexOf("win") >= 0) { //$NON-NLS-1$ //$NON-NLS-2$
 				try {
 					//try to find mingw or cygwin path from PATH environment variable
-					IBuildEnvironmentVariable envPath = llvmEnvironmentVariables
-							.get(ENV_VAR_NAME_PATH);
+					IBuildEnvironmentVariable envPath = getLlvmEnvironmentVariable(ENV_VAR_NAME_PATH);
 					IBuildEnvironmentVariable mingwPath=null, cygwinPath=null;
 					//if path is empty
 					if (envPath == null) {
@@ -95,13 +116,13 @@ public class LlvmEnvironmentVariableSupplier implements
 				}
 			}
 			//initialize environment variable cache values
-			setLlvmEnvironmentVariable(ENV_VAR_NAME_PATH, pathStr);
-			setLlvmEnvironmentVariable(ENV_VAR_NAME_LLVMINTERP, binPath + Separators.getFileSeparator() + "lli"); //$NON-NLS-1$
-			setLlvmEnvironmentVariable(ENV_VAR_NAME_INCLUDE_PATH, getSysEnvPath(ENV_VAR_NAME_INCLUDE_PATH));
-			setLlvmEnvironmentVariable(ENV_VAR_NAME_LIBRARY_PATH, getSysEnvPath(ENV_VAR_NAME_LIBRARY_PATH));
-			setLlvmEnvironmentVariable(ENV_VAR_NAME_LIBRARIES, getSysEnvPath(ENV_VAR_NAME_LIBRARIES));
-			preferencesChanged = false;
+			putAppendVariable(vars, ENV_VAR_NAME_PATH, pathStr);
+			putAppendVariable(vars, ENV_VAR_NAME_LLVMINTERP, binPath + Separators.getFileSeparator() + "lli"); //$NON-NLS-1$
+			putAppendVariable(vars, ENV_VAR_NAME_INCLUDE_PATH, getSysEnvPath(ENV_VAR_NAME_INCLUDE_PATH));
+			putAppendVariable(vars, ENV_VAR_NAME_LIBRARY_PATH, getSysEnvPath(ENV_VAR_NAME_LIBRARY_PATH));
+			putAppendVariable(vars, ENV_VAR_NAME_LIBRARIES, getSysEnvPath(ENV_VAR_NAME_LIBRARIES));
 		}
+		publish(vars);
 	}
 	
 	/**
@@ -110,35 +131,41 @@ public class LlvmEnvironmentVariableSupplier implements
 	 * @return LLVM bin path
 	 */
 	public static String getBinPath() {
-		return findBinDir(ENV_VAR_NAME_LLVM_BIN, "bin"); //$NON-NLS-1$
+		LlvmInstall install = LlvmInstallRegistry.getDefaultInstall();
+		return install != null ? install.getBinDir() : null;
 	}
 
 	/**
 	 * Get LLVM include paths
 	 * 
-	 * @return LLVM include paths
+	 * @return LLVM include paths of the global environment, empty if not set
+	 * @deprecated The values of a build configuration are in its environment, see getVariable.
 	 */
+	@Deprecated
 	public static String getIncludePath() {
-		return getLlvmEnvironmentVariable(ENV_VAR_NAME_INCLUDE_PATH).getValue();
+		return getLlvmEnvironmentVariableValue(ENV_VAR_NAME_INCLUDE_PATH);
 	}
 
 	/**
 	 * Get LLVM library paths
 	 * 
-	 * @return LLVM library paths
+	 * @return LLVM library paths of the global environment, empty if not set
+	 * @deprecated The values of a build configuration are in its environment, see getVariable.
 	 */
+	@Deprecated
 	public static String getLibraryPath() {
-		return getLlvmEnvironmentVariable(ENV_VAR_NAME_LIBRARY_PATH).getValue();
+		return getLlvmEnvironmentVariableValue(ENV_VAR_NAME_LIBRARY_PATH);
 	}
 
 	/**
 	 * Get LLVM libraries
 	 * 
-	 * @return LLVM libraries
+	 * @return LLVM libraries of the global environment, empty if not set
+	 * @deprecated The values of a build configuration are in its environment, see getVariable.
 	 */
+	@Deprecated
 	public static String getLibraries() {
-		return getLlvmEnvironmentVariable(ENV_VAR_NAME_LIBRARIES).getValue();
-		
+		return getLlvmEnvironmentVariableValue(ENV_VAR_NAME_LIBRARIES);
 	}
 	
 	/**
@@ -156,11 +183,7 @@ public class LlvmEnvironmentVariableSupplier implements
 	 * @param path Include path
 	 */
 	public static void addIncludePath(String path) {
-		String existingIncPaths = getIncludePath();
-		//add the include path only if it doesn't already exists
-		if (!existingIncPaths.contains(path)) {
-			appendLlvmEnvironmentVariable(ENV_VAR_NAME_INCLUDE_PATH, existingIncPaths, path);			
-		}
+		appendLlvmEnvironmentVariableIfAbsent(ENV_VAR_NAME_INCLUDE_PATH, path);
 	}
 	
 	/**
@@ -169,11 +192,7 @@ public class LlvmEnvironmentVariableSupplier implements
 	 * @param path Library path
 	 */
 	public static void addLibraryPath(String path) {
-		String existingLibPaths = getLibraryPath();
-		//add the library path only if it doesn't already exists
-		if (!existingLibPaths.contains(path)) {
-			appendLlvmEnvironmentVariable(ENV_VAR_NAME_LIBRARY_PATH, existingLibPaths, path);			
-		}
+		appendLlvmEnvironmentVariableIfAbsent(ENV_VAR_NAME_LIBRARY_PATH, path);
 	}
 	
 	/**
@@ -182,129 +201,18 @@ public class LlvmEnvironmentVariableSupplier implements
 	 * @param lib Library file
 	 */
 	public static void addLibrary(String lib) {
-		String existingLibs = getLibraries();
-		//add the library only if it doesn't already exists
-		if (!existingLibs.contains(lib)) {
-			appendLlvmEnvironmentVariable(ENV_VAR_NAME_LIBRARIES, existingLibs, lib);			
-		}
+		appendLlvmEnvironmentVariableIfAbsent(ENV_VAR_NAME_LIBRARIES, lib);
 	}
 	
 	/**
 	 * This is to be called if some of the preference paths have changed.
-	 */
-	public static void notifyPreferenceChange() { //TODO: Change
-		preferencesChanged = true;
-	}
-
-	/**
-	 * Get a specific path for given parameters.
 	 * 
-	 * @param pathKey Path for specific location
-	 * @param subDirName Additional sub-path
-	 * @return bin path
+	 * @deprecated Preference changes are received by LlvmInvalidationBus.
 	 */
-	private static String findBinDir(String pathKey, String subDirName) {
-		String resultPath = null;
-		//if preferences haven't been changed
-		//try to find the bin path from the LLVM environment variable HashMap 
-		if (!preferencesChanged) { //TODO: Change
-			//get current path
-			LlvmBuildEnvironmentVariable earlierValue = llvmEnvironmentVariables
-					.get(pathKey);
-			//if earlier LlvmBuildEnvironmentVariable exists
-			if (null != earlierValue) {
-				//return current path
-				return earlierValue.getValue();
-			}
-		} else {
-			// Try if the path is set in the LLVM plug-in preferences
-			String preferenceLocation = LlvmPreferenceStore.getBinPath();
-			//if preference exists
-			if (null != preferenceLocation) {
-				//remove white spaces from preference location
-				preferenceLocation = preferenceLocation.trim();
-				//if preference location is not empty
-				if (preferenceLocation.length()!=0) {
-					//get path for LLVM executable
-					resultPath = getDirIfLlvmFound(preferenceLocation, null);
-					//if LLVM executable path doesn't exist
-					if (null == resultPath) {
-						// If no luck check next with sub directory name appended
-						resultPath = getDirIfLlvmFound(preferenceLocation,
-								subDirName);
-					}
-				}
-			}
-			if (null == resultPath) {
-				// If still no luck try all folders listed in PATH
-				String pathVariable = System.getenv(ENV_VAR_NAME_PATH);
-				//split paths to String array
-				String[] paths = pathVariable.split(Separators.getPathSeparator());
-				//check every path if LLVM executable is found
-				for (String pathStr : paths) {
-					resultPath = getDirIfLlvmFound(pathStr, null);
-					//stop loop if LLVM executable path is found
-					if (null != resultPath) {
-						break;
-					}
-				}
-			}
-			//return found path
-			return resultPath;			
-		}
-		return null;
+	public static void notifyPreferenceChange() {
+		LlvmInvalidationBus.preferenceChanged(PreferenceConstants.P_LLVM_PATH);
 	}
 
-	/**
-	 * Get LLVM executable path.
-	 * 
-	 * @param candidatePath Suggestion for LLVM executable path
-	 * @param subPath Additional sub-path for LLVM executable path
-	 * @return Full path for LLVM executable if valid, otherwise null
-	 */
-	private static String getDirIfLlvmFound(String candidatePath, String subPath) {
-		String llvmPath = null;
-		// If there is a trailing / or \, remove it
-		if (candidatePath.endsWith(Separators.getFileSeparator()) && candidatePath.length() > 1) {
-			llvmPath = candidatePath.substring(0, candidatePath.length() - 1);
-		}
-		//if subPath exists and is not empty -> append it to candidatePath
-		if ((null != subPath) && (subPath.length()!=0)) {
-			//form full path
-			llvmPath = candidatePath + Separators.getFileSeparator() + subPath;
-		}
-		//return a full path for LLVM executable if it's valid, otherwise null
-		return getBinDirIfLlvm_ar(llvmPath);
-	}
-
-	/**
-	 * Get the full path for llvm executable if the bin path given
-	 * as a parameter is found and executable exists in that path.
-	 * 
-	 * @param binPathTemp User provided bin directory path
-	 * @return bin path where llvm-ar is located if executable exists
-	 */
-	private static String getBinDirIfLlvm_ar(String binPathTemp) {
-		//if given directory is found
-		if (new Path(binPathTemp).toFile().isDirectory()) {
-			String llvm_executable = "llvm-ar"; //$NON-NLS-1$
-			File arFileFullPath = null;
-			//if OS is Windows -> add .exe to the executable name
-			if (System.getProperty("os.name").toLowerCase().indexOf("win") >= 0) {  //$NON-NLS-1$//$NON-NLS-2$
-				llvm_executable = llvm_executable + ".exe"; //$NON-NLS-1$
-			}
-			//form full executable path
-			arFileFullPath = new File(binPathTemp + Separators.getFileSeparator()
-					+ llvm_executable);
-			//check if file exists -> proper LLVM installation exists
-			if (arFileFullPath.isFile()) {
-				//return path where llvm-ar exists
-				return binPathTemp;
-			}
-		}			
-		return null;
-	}
-	
 	/**
 	 * Get stdc++ library path located in MinGW installation.
 	 * 
@@ -332,19 +240,30 @@ public class LlvmEnvironmentVariableSupplier implements
 	 * @param envName Name of the environment variable
 	 */
 	public static LlvmBuildEnvironmentVariable getLlvmEnvironmentVariable(String envName) {
-		return llvmEnvironmentVariables.get(envName);
+		return snapshot.get().variables.get(envName);
+	}
+	
+	/**
+	 * Returns the value of a LLVM environment variable from the current snapshot.
+	 * 
+	 * @param envName Name of the environment variable
+	 * @return value or an empty string if the variable isn't set
+	 */
+	private static String getLlvmEnvironmentVariableValue(String envName) {
+		LlvmBuildEnvironmentVariable var = getLlvmEnvironmentVariable(envName);
+		return var != null ? var.getValue() : ""; //$NON-NLS-1$
 	}
 	
 	/**
-	 * Set LLVM environment variable.
+	 * Put a LLVM environment variable that is appended to the existing paths.
 	 * 
+	 * @param vars Variables to be published
 	 * @param name Name for the environment variable
 	 * @param path Path for the environment variable
 	 */
-	private static void setLlvmEnvironmentVariable(String name, String path) {
-		//appends a new path in front of the the old path in HashMap that contains
-		//the specific LLVM environment variable
-		llvmEnvironmentVariables.put(name, new LlvmBuildEnvironmentVariable(
+	private static void putAppendVariable(Map<String, LlvmBuildEnvironmentVariable> vars,
+			String name, String path) {
+		vars.put(name, new LlvmBuildEnvironmentVariable(
 				name, path, IBuildEnvironmentVariable.ENVVAR_APPEND));
 	}
 	
@@ -355,9 +274,9 @@ public class LlvmEnvironmentVariableSupplier implements
 	 * @param path Path for the environment variable
 	 */
 	public static void setLlvmEnvironmentVariableReplace(String name, String path) {
-		//replaces the old path in HashMap that contains the specific LLVM environment variable
-		llvmEnvironmentVariables.put(name, new LlvmBuildEnvironmentVariable(
-				name, path, IBuildEnvironmentVariable.ENVVAR_REPLACE));
+		//replaces the old path of the specific LLVM environment variable
+		publish(Collections.singletonMap(name, new LlvmBuildEnvironmentVariable(
+				name, path, IBuildEnvironmentVariable.ENVVAR_REPLACE)));
 	}
 	
 	/**
@@ -368,40 +287,52 @@ public class LlvmEnvironmentVariableSupplier implements
 	 * @param path New path to be added to the environment variable
 	 */
 	public static void appendLlvmEnvironmentVariable(String name, String oldPath, String path) {
-		String newPath = null;
-		boolean ok = false;
-		//if oldPath exists
-		if (oldPath!=null) {
-			//if the oldPath isn't empty
-			if((oldPath.trim()).length()!=0) {
-				StringBuffer sB = new StringBuffer();
-				//append old path
-				sB.append(oldPath);
-				//append a path separator
-				sB.append(Separators.getPathSeparator());
-				//append the new path
-				sB.append(path);
-				//construct a new full path
-				newPath = sB.toString();
-				ok=true;
-			}
+		PathList newPaths = PathList.parse(oldPath).with(path);
+		//if new paths exist add them to the LLVM environment variable
+		if (!newPaths.isEmpty()) {
+			publish(Collections.singletonMap(name, new LlvmBuildEnvironmentVariable(
+					name, newPaths, IBuildEnvironmentVariable.ENVVAR_APPEND)));
 		}
-		if (!ok) {
-			newPath=path;			
-		}
-		//set new path to the HashMap that contains
-		//the specific LLVM environment variable
-		//if newPath exists
-		if (newPath!=null) {
-			//if the newPath isn't empty
-			if((newPath.trim()).length()!=0) {
-				//add new values to the LLVM environment variable
-				llvmEnvironmentVariables.put(name, new LlvmBuildEnvironmentVariable(
-						name, newPath, IBuildEnvironmentVariable.ENVVAR_APPEND));				
+	}
+	
+	/**
+	 * Append a path to the current value of a LLVM environment variable
+	 * if the value doesn't contain it already. Concurrent appends are not lost.
+	 * 
+	 * @param name Name of the environment variable
+	 * @param path New path to be added to the environment variable
+	 */
+	private static void appendLlvmEnvironmentVariableIfAbsent(String name, String path) {
+		while (true) {
+			Snapshot current = snapshot.get();
+			LlvmBuildEnvironmentVariable var = current.variables.get(name);
+			PathList oldPaths = var != null ? var.getPathList() : PathList.EMPTY;
+			PathList newPaths = oldPaths.with(path);
+			//add the path only if it doesn't already exists
+			if (newPaths == oldPaths) {
+				return;
+			}
+			Map<String, LlvmBuildEnvironmentVariable> vars = Collections.singletonMap(name,
+					new LlvmBuildEnvironmentVariable(name, newPaths, IBuildEnvironmentVariable.ENVVAR_APPEND));
+			if (snapshot.compareAndSet(current, current.with(vars))) {
+				return;
 			}
 		}
 	}
 	
+	/**
+	 * Publishes a new snapshot that contains the given variables in addition to the
+	 * current ones. Readers see either the old or the new snapshot, never a mix.
+	 * 
+	 * @param vars Variables to add or replace, may be null
+	 */
+	private static void publish(Map<String, LlvmBuildEnvironmentVariable> vars) {
+		Snapshot current;
+		do {
+			current = snapshot.get();
+		} while (!snapshot.compareAndSet(current, current.with(vars)));
+	}
+	
 	/**
 	 * Returns a system environment variable path
 	 * 
@@ -426,7 +357,7 @@ public class LlvmEnvironmentVariableSupplier implements
 	 */
 	public IBuildEnvironmentVariable getVariable(String variableName,
 			IConfiguration configuration, IEnvironmentVariableProvider provider) {
-		return llvmEnvironmentVariables.get(variableName);
+		return getEnvironment(configuration).variables.get(variableName);
 	}
 
 	/*
@@ -439,8 +370,213 @@ public class LlvmEnvironmentVariableSupplier implements
 	 */
 	public IBuildEnvironmentVariable[] getVariables(
 			IConfiguration configuration, IEnvironmentVariableProvider provider) {
-		return llvmEnvironmentVariables.values().toArray(
-				new IBuildEnvironmentVariable[0]);
+		//the cached array of the snapshot is shared by all callers
+		return getEnvironment(configuration).array;
+	}
+
+	/**
+	 * Returns the LLVM environment of a build configuration. The values of the
+	 * configuration's LLVM Tool options and the LLVM installation of its front-end
+	 * command override the global values. The result is memoized until the
+	 * global values, the configuration's tools or its Tool option values change.
+	 * 
+	 * @param cf IConfiguration Build configuration or null for the global values
+	 * @return Snapshot Environment of the configuration
+	 */
+	private static Snapshot getEnvironment(IConfiguration cf) {
+		Snapshot base = snapshot.get();
+		if (cf == null) {
+			return base;
+		}
+		int fingerprint = fingerprint(cf);
+		synchronized (configurationEnvironments) {
+			ConfigurationEnvironment env = configurationEnvironments.get(cf);
+			if (env != null && env.base == base && env.fingerprint == fingerprint) {
+				return env.environment;
+			}
+		}
+		//compute outside of the lock
+		ConfigurationEnvironment env = new ConfigurationEnvironment(base, fingerprint,
+				base.with(getConfigurationVariables(cf)));
+		synchronized (configurationEnvironments) {
+			configurationEnvironments.put(cf, env);
+		}
+		return env.environment;
+	}
+
+	/**
+	 * Discards the memoized environment of a build configuration.
+	 * Called when the LLVM Tool option values of the configuration change.
+	 * 
+	 * @param cf IConfiguration Build configuration
+	 */
+	public static void invalidate(IConfiguration cf) {
+		synchronized (configurationEnvironments) {
+			configurationEnvironments.remove(cf);
+		}
+	}
+
+	/**
+	 * Discards the memoized environments of every build configuration.
+	 * Called when the LLVM installation folder changes.
+	 */
+	public static void invalidateAll() {
+		synchronized (configurationEnvironments) {
+			configurationEnvironments.clear();
+		}
+		//a new snapshot makes environments that are being computed stale
+		publish(null);
+	}
+
+	/**
+	 * Discards the memoized environments of every build configuration of a project.
+	 * Called when the build settings of the project change.
+	 * 
+	 * @param proj IProject Project
+	 */
+	public static void invalidate(IProject proj) {
+		synchronized (configurationEnvironments) {
+			for (Iterator<IConfiguration> it = configurationEnvironments.keySet().iterator(); it.hasNext();) {
+				IResource owner = it.next().getOwner();
+				if (owner == null || proj.equals(owner.getProject())) {
+					it.remove();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Computes a value that changes when the tool chain or the tools of the
+	 * configuration change. Changes of Tool option values are handled by invalidate.
+	 * 
+	 * @param cf IConfiguration Build configuration
+	 * @return int fingerprint
+	 */
+	private static int fingerprint(IConfiguration cf) {
+		int hash = 17;
+		IToolChain toolChain = cf.getToolChain();
+		if (toolChain != null) {
+			hash = 31 * hash + System.identityHashCode(toolChain);
+		}
+		for (ITool tool : cf.getTools()) {
+			hash = 31 * hash + String.valueOf(tool.getId()).hashCode();
+			hash = 31 * hash + String.valueOf(tool.getToolCommand()).hashCode();
+		}
+		return hash;
+	}
+
+	/**
+	 * Returns the environment variables that are specific to a build configuration.
+	 * 
+	 * @param cf IConfiguration Build configuration
+	 * @return Map of variables overriding the global ones
+	 */
+	private static Map<String, LlvmBuildEnvironmentVariable> getConfigurationVariables(IConfiguration cf) {
+		Map<String, LlvmBuildEnvironmentVariable> vars = new HashMap<String, LlvmBuildEnvironmentVariable>(6);
+		String binPath = getConfigurationBinPath(cf);
+		if (binPath != null) {
+			vars.put(ENV_VAR_NAME_LLVM_BIN, new LlvmBuildEnvironmentVariable(
+					ENV_VAR_NAME_LLVM_BIN, binPath, IBuildEnvironmentVariable.ENVVAR_REPLACE));
+			putAppendVariable(vars, ENV_VAR_NAME_PATH, binPath);
+			putAppendVariable(vars, ENV_VAR_NAME_LLVMINTERP, binPath + Separators.getFileSeparator() + "lli"); //$NON-NLS-1$
+		}
+		putToolOptionVariable(vars, cf, LlvmToolOptionPathUtil.INCLUDE, ENV_VAR_NAME_INCLUDE_PATH);
+		putToolOptionVariable(vars, cf, LlvmToolOptionPathUtil.LIB_PATH, ENV_VAR_NAME_LIBRARY_PATH);
+		putToolOptionVariable(vars, cf, LlvmToolOptionPathUtil.LIB, ENV_VAR_NAME_LIBRARIES);
+		return vars;
+	}
+
+	/**
+	 * Returns the LLVM bin directory of the installation pinned for the configuration
+	 * or of the configuration's front-end if its command is given with an absolute path.
+	 * 
+	 * @param cf IConfiguration Build configuration
+	 * @return bin path or null if the configuration uses the default LLVM installation
+	 */
+	private static String getConfigurationBinPath(IConfiguration cf) {
+		LlvmInstall pinned = LlvmInstallRegistry.getPinnedInstall(cf);
+		if (pinned != null) {
+			return pinned.getBinDir();
+		}
+		ToolOptionCache.ToolOption frontEnd = ToolOptionCache.get(cf, LlvmToolOptionPathUtil.INCLUDE);
+		if (frontEnd == null || frontEnd.getTool() == null) {
+			return null;
+		}
+		String command = frontEnd.getTool().getToolCommand();
+		if (command == null || !new File(command).isAbsolute()) {
+			return null;
+		}
+		String dir = new File(command).getParent();
+		return dir != null && LlvmInstallRegistry.isLlvmDir(dir) ? dir : null;
+	}
+
+	/**
+	 * Puts the values of a LLVM Tool option of the configuration as an environment variable.
+	 * 
+	 * @param vars Variables of the configuration
+	 * @param cf IConfiguration Build configuration
+	 * @param var Tool option's value (INCLUDE, LIB or LIB_PATH)
+	 * @param name Name of the environment variable
+	 */
+	private static void putToolOptionVariable(Map<String, LlvmBuildEnvironmentVariable> vars,
+			IConfiguration cf, int var, String name) {
+		String[] values = LlvmToolOptionPathUtil.getToolOptionValues(cf, var);
+		//keep the global value if the configuration doesn't have the Tool option
+		if (values == null || values.length == 0) {
+			return;
+		}
+		vars.put(name, new LlvmBuildEnvironmentVariable(
+				name, PathList.of(values), IBuildEnvironmentVariable.ENVVAR_APPEND));
+	}
+
+	/**
+	 * Memoized environment of one build configuration.
+	 */
+	private static final class ConfigurationEnvironment {
+
+		//global snapshot the environment was computed from
+		final Snapshot base;
+		final int fingerprint;
+		final Snapshot environment;
+
+		ConfigurationEnvironment(Snapshot base, int fingerprint, Snapshot environment) {
+			this.base = base;
+			this.fingerprint = fingerprint;
+			this.environment = environment;
+		}
+	}
+
+	/**
+	 * Immutable set of LLVM environment variables. Changes create a new snapshot.
+	 */
+	private static final class Snapshot {
+
+		static final Snapshot INITIAL = new Snapshot(
+				new HashMap<String, LlvmBuildEnvironmentVariable>(0));
+
+		final Map<String, LlvmBuildEnvironmentVariable> variables;
+		//handed out by getVariables
+		final IBuildEnvironmentVariable[] array;
+
+		private Snapshot(Map<String, LlvmBuildEnvironmentVariable> variables) {
+			this.variables = Collections.unmodifiableMap(variables);
+			this.array = variables.values().toArray(new IBuildEnvironmentVariable[variables.size()]);
+		}
+
+		/**
+		 * Returns a copy of this snapshot with the given changes.
+		 * 
+		 * @param vars Variables to add or replace, may be null
+		 * @return Snapshot New snapshot
+		 */
+		Snapshot with(Map<String, LlvmBuildEnvironmentVariable> vars) {
+			HashMap<String, LlvmBuildEnvironmentVariable> copy =
+				new HashMap<String, LlvmBuildEnvironmentVariable>(this.variables);
+			if (vars != null) {
+				copy.putAll(vars);
+			}
+			return new Snapshot(copy);
+		}
 	}
 
 }
@@ -13,6 +13,7 @@ package org.eclipse.cdt.managedbuilder.llvm.ui;
 
 import org.eclipse.cdt.managedbuilder.core.IManagedIsToolChainSupported;
 import org.eclipse.cdt.managedbuilder.core.IToolChain;
+import org.eclipse.cdt.managedbuilder.llvm.util.LlvmToolChainAvailability;
 import org.osgi.framework.Version;
 
 /**
@@ -21,15 +22,13 @@ import org.osgi.framework.Version;
  */
 public class LlvmIsToolChainSupported implements IManagedIsToolChainSupported {
 
-	private final boolean supported;
-	
 	/**
 	 * Constructor.
-	 * LLVM Toolchain is supported if binary path for LLVM Tools can be found.
+	 * LLVM Toolchain is supported if an LLVM installation that provides
+	 * the tools of the toolchain variant can be found.
 	 */
 	public LlvmIsToolChainSupported() {
-		// Only supported if we can find the llvm tools.
-		this.supported = LlvmEnvironmentVariableSupplier.getBinPath() != null;
+		//support is known by LlvmToolChainAvailability, nothing to search here
 	}
 
 	/* (non-Javadoc)
@@ -38,6 +37,7 @@ public class LlvmIsToolChainSupported implements IManagedIsToolChainSupported {
 	 */
 	/**
 	 * Return a boolean value that informs if the LLVM Toolchain is supported.
+	 * Answered from memory since this is called repeatedly from the UI thread.
 	 */
 	public boolean isSupported(IToolChain toolChain,
 			/*
@@ -45,7 +45,7 @@ public class LlvmIsToolChainSupported implements IManagedIsToolChainSupported {
 			 * Use org.osgi.framework.PluginVersionIdentifier with older CDT versions.
 			 */
 			Version version, String instance) {
-		return this.supported;
+		return LlvmToolChainAvailability.isSupported(toolChain);
 	}
 
 }
@@ -21,6 +21,9 @@ import org.eclipse.core.runtime.CoreException;
  */
 public class LlvmProjectNature implements IProjectNature {
 
+	//The nature ID
+	public static final String NATURE_ID = LlvmUIPlugin.PLUGIN_ID + ".llvmNature"; //$NON-NLS-1$
+
 	private IProject project;
 
 	/**
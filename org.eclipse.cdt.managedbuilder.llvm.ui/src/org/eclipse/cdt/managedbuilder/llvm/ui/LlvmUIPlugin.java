@@ -17,9 +17,12 @@ import java.util.MissingResourceException;
 import java.util.PropertyResourceBundle;
 import java.util.ResourceBundle;
 
+import org.eclipse.cdt.managedbuilder.llvm.ui.preferences.LlvmPreferenceModel;
+import org.eclipse.cdt.managedbuilder.llvm.util.LlvmInvalidationBus;
+import org.eclipse.cdt.managedbuilder.llvm.util.LlvmPathValidator;
 import org.eclipse.cdt.managedbuilder.llvm.util.LlvmResourceListener;
-import org.eclipse.core.resources.IResourceChangeEvent;
-import org.eclipse.core.resources.IResourceChangeListener;
+import org.eclipse.cdt.managedbuilder.llvm.util.LlvmSaveParticipant;
+import org.eclipse.cdt.managedbuilder.llvm.util.LlvmToolChainAvailability;
 import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.FileLocator;
 import org.eclipse.core.runtime.IStatus;
@@ -53,9 +56,8 @@ public class LlvmUIPlugin extends AbstractUIPlugin {
 	//Property Resource bundle
 	private PropertyResourceBundle properties;
 	
-	//Resource listeners
-	private IResourceChangeListener listener = new LlvmResourceListener();
-	private IResourceChangeListener listener2 = new LlvmResourceListener();
+	//Resource listener
+	private LlvmResourceListener listener = new LlvmResourceListener();
 	
 	/**
 	 * Constructor.
@@ -73,12 +75,17 @@ public class LlvmUIPlugin extends AbstractUIPlugin {
 	public void start(BundleContext context) throws Exception {
 		super.start(context);
 		plugin = this;
-//		LlvmEnvironmentVariableSupplier.initializePaths();
-		//add resource change listeners to the workspace
+		//keep the list valued LLVM preferences in memory
+		LlvmPreferenceModel.startup();
+		//discard cached LLVM values when the values they depend on change
+		LlvmInvalidationBus.startup();
+		//find out the supported toolchains in the background
+		LlvmToolChainAvailability.startup();
+		//restore the saved state of LLVM projects and their source files
+		LlvmSaveParticipant.startup(this.listener);
+		//add resource change listener to the workspace
 		ResourcesPlugin.getWorkspace().addResourceChangeListener(
-				this.listener, IResourceChangeEvent.PRE_BUILD);
-		ResourcesPlugin.getWorkspace().addResourceChangeListener(
-				this.listener2, IResourceChangeEvent.POST_BUILD);
+				this.listener, LlvmResourceListener.EVENT_MASK);
 	}
 
 	/*
@@ -87,6 +94,12 @@ public class LlvmUIPlugin extends AbstractUIPlugin {
 	 */
 	@Override
 	public void stop(BundleContext context) throws Exception {
+		ResourcesPlugin.getWorkspace().removeResourceChangeListener(this.listener);
+		LlvmSaveParticipant.shutdown();
+		LlvmPathValidator.shutdown();
+		LlvmToolChainAvailability.shutdown();
+		LlvmInvalidationBus.shutdown();
+		LlvmPreferenceModel.shutdown();
 		super.stop(context);
 		plugin = null;
 		this.resourceBundle = null;
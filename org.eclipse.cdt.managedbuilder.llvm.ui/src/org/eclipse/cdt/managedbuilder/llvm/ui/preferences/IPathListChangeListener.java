@@ -0,0 +1,28 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2013 Nokia Siemens Networks Oyj, Finland.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *      Nokia Siemens Networks - initial implementation
+ *      Petri Tuononen - Initial implementation
+ *******************************************************************************/
+package org.eclipse.cdt.managedbuilder.llvm.ui.preferences;
+
+/**
+ * Listener of the list valued LLVM preferences.
+ *
+ */
+public interface IPathListChangeListener {
+
+	/**
+	 * Called after a list valued preference has changed. Called in the thread
+	 * that made the change, without holding the lock of the preference model.
+	 *
+	 * @param event Change
+	 */
+	void pathListChanged(PathListChangeEvent event);
+
+}
@@ -11,12 +11,9 @@
  *******************************************************************************/
 package org.eclipse.cdt.managedbuilder.llvm.ui.preferences;
 
-import org.eclipse.cdt.managedbuilder.llvm.ui.LlvmEnvironmentVariableSupplier;
-import org.eclipse.cdt.managedbuilder.llvm.util.LlvmToolOptionPathUtil;
 import org.eclipse.swt.SWT;
 import org.eclipse.swt.widgets.Composite;
 import org.eclipse.swt.widgets.DirectoryDialog;
-import org.eclipse.swt.widgets.List;
 import org.eclipse.swt.widgets.Text;
 
 /**
@@ -54,47 +51,8 @@ public class IncludePathListEditor extends LlvmListEditor {
 		}
 		//remove white spaces
 		dir = dir.trim();
-		if (dir.length()!=0) {
-			//get all existing items in the list
-			String[] existingItems = getList().getItems();
-			//check that the list doesn't already contain the added item
-			if (existingItems.length>0) {
-				//return null if duplicate item found
-				for (String item : existingItems) {
-					if (item.equalsIgnoreCase(dir)) {
-						return null;
-					}
-				}					
-			}
-			//add a new include path to LLVM preference store
-			LlvmPreferenceStore.appendIncludePath(dir);
-			//add a new include path to LLVM assembler's option
-			LlvmToolOptionPathUtil.addLlvmIncludePath(dir);
-			//inform LLVM environment variable supplier that there has been a change
-			LlvmEnvironmentVariableSupplier.notifyPreferenceChange();
-			return dir;
-		}
-		return null;
+		//duplicates are ignored by the list, the value is stored when the page is applied
+		return dir.length() != 0 ? dir : null;
 	}
 
-	@Override
-	/**
-	 * Removes the path from the list as well as from the Tool's Option.
-	 */
-	protected void removePressed() {
-		List incList = getList();
-        setPresentsDefaultValue(false);
-        String[] selected = incList.getSelection();
-        for (String s : selected) {
-            //remove an include path from the LLVM preference store
-            LlvmPreferenceStore.removeIncludePath(s);
-            //remove an include path from the LLVM assembler's option
-            LlvmToolOptionPathUtil.removeLlvmIncludePath(s);
-    		//inform LLVM environment variable supplier that there has been a change
-    		LlvmEnvironmentVariableSupplier.notifyPreferenceChange();
-    		incList.remove(s);
-    		selectionChanged();
-        }
-	}
-	
 }
\ No newline at end of file
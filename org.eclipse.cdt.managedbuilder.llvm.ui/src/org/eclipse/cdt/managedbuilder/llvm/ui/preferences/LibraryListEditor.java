@@ -11,12 +11,9 @@
  *******************************************************************************/
 package org.eclipse.cdt.managedbuilder.llvm.ui.preferences;
 
-import org.eclipse.cdt.managedbuilder.llvm.ui.LlvmEnvironmentVariableSupplier;
-import org.eclipse.cdt.managedbuilder.llvm.util.LlvmToolOptionPathUtil;
 import org.eclipse.swt.SWT;
 import org.eclipse.swt.widgets.Composite;
 import org.eclipse.swt.widgets.FileDialog;
-import org.eclipse.swt.widgets.List;
 import org.eclipse.swt.widgets.Text;
 
 /**
@@ -43,55 +40,33 @@ public class LibraryListEditor extends LlvmListEditor {
 	 * Shows a browser dialog to select a file and returns that file.
 	 */
 	protected String getNewInputObject() {
-		FileDialog dlg = new FileDialog(getShell());
+		String[] files = getNewInputObjects();
+		return files.length != 0 ? files[0] : null;
+	}
+
+	@Override
+	/**
+	 * Functionality for New button.
+	 * Shows a browser dialog to select one or more files and returns those files.
+	 */
+	protected String[] getNewInputObjects() {
+		FileDialog dlg = new FileDialog(getShell(), SWT.OPEN | SWT.MULTI);
 		final Text text = new Text(getShell(), SWT.BORDER);
 		dlg.setFilterPath(text.getText());
 		dlg.setText(Messages.LibraryListEditor_0); 
-		dlg.open();
-		String file = dlg.getFileName();
-		if(file == null) {
-			return null;
-		}
-		//remove white spaces
-		file = file.trim();
-		if (file.length()!=0) {
-			//get all existing items in the list
-			String[] existingItems = getList().getItems();
-			//return null if duplicate item found
-			for (String item : existingItems) {
-				if (item.equalsIgnoreCase(file)) {
-					return null;
-				}
-			}
-			//add a new library to LLVM preference store
-			LlvmPreferenceStore.appendLibrary(file);
-			//add a new library to LLVM linker's option
-			LlvmToolOptionPathUtil.addLlvmLib(file);
-			//inform LLVM environment variable supplier that there has been a change
-			LlvmEnvironmentVariableSupplier.notifyPreferenceChange();
-			return file;
+		if (dlg.open() == null) {
+			return new String[0];
 		}
-		return null;
+		//duplicates are ignored by the list, the values are stored when the page is applied
+		return dlg.getFileNames();
 	}
 
 	@Override
 	/**
-	 * Removes the path from the list as well as from the Tool's Option.
+	 * Libraries are file names found from the library search paths, not paths.
 	 */
-	protected void removePressed() {
-		List libList = getList();
-        setPresentsDefaultValue(false);
-        String[] selected = libList.getSelection();
-        for (String s : selected) {
-            //remove a library from the LLVM preference store
-            LlvmPreferenceStore.removeLibrary(s);
-            //remove a library from LLVM linker's option
-            LlvmToolOptionPathUtil.removeLlvmLib(s);
-            //inform LLVM environment variable supplier that there has been a change
-            LlvmEnvironmentVariableSupplier.notifyPreferenceChange();
-            libList.remove(s);
-            selectionChanged();
-        }
+	protected boolean validatesPaths() {
+		return false;
 	}
-	
+
 }
\ No newline at end of file
@@ -11,40 +11,86 @@
  *******************************************************************************/
 package org.eclipse.cdt.managedbuilder.llvm.ui.preferences;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
 import java.util.regex.Pattern;
 
 import org.eclipse.jface.dialogs.IDialogConstants;
-import org.eclipse.jface.preference.ListEditor;
+import org.eclipse.jface.fieldassist.FieldDecorationRegistry;
+import org.eclipse.jface.preference.FieldEditor;
 import org.eclipse.jface.resource.JFaceResources;
+import org.eclipse.cdt.managedbuilder.llvm.util.LlvmPathValidator;
+import org.eclipse.cdt.managedbuilder.llvm.util.LlvmToolOptionBatch;
+import org.eclipse.cdt.managedbuilder.llvm.util.PathList;
+import org.eclipse.cdt.managedbuilder.llvm.util.PathSet;
 import org.eclipse.cdt.managedbuilder.llvm.util.Separators;
-import org.eclipse.core.runtime.Assert;
 import org.eclipse.swt.SWT;
+import org.eclipse.swt.dnd.Clipboard;
+import org.eclipse.swt.dnd.TextTransfer;
 import org.eclipse.swt.events.DisposeEvent;
 import org.eclipse.swt.events.DisposeListener;
+import org.eclipse.swt.events.ModifyEvent;
+import org.eclipse.swt.events.ModifyListener;
 import org.eclipse.swt.events.SelectionAdapter;
 import org.eclipse.swt.events.SelectionEvent;
 import org.eclipse.swt.events.SelectionListener;
+import org.eclipse.swt.graphics.Image;
 import org.eclipse.swt.layout.GridData;
 import org.eclipse.swt.layout.GridLayout;
 import org.eclipse.swt.widgets.Button;
 import org.eclipse.swt.widgets.Composite;
-import org.eclipse.swt.widgets.List;
+import org.eclipse.swt.widgets.Control;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.Event;
+import org.eclipse.swt.widgets.Listener;
 import org.eclipse.swt.widgets.Shell;
+import org.eclipse.swt.widgets.Table;
+import org.eclipse.swt.widgets.TableItem;
+import org.eclipse.swt.widgets.Text;
 import org.eclipse.swt.widgets.Widget;
 
 /**
  * An abstract list editor that manages a list of input values.
- * The editor displays a list containing the values, buttons for adding and removing
- * values, and Up and Down buttons to adjust the order of elements in the list.
- * 
+ * The editor displays a filter field, a table containing the values, buttons for
+ * adding, pasting and removing values, and Up and Down buttons to adjust the order
+ * of elements in the list.
+ *
+ * The values are kept in a list of Strings and the table is virtual: only the rows
+ * that are shown are created, so lists with thousands of paths open and scroll fast.
+ * Typing to the filter field shows only the values containing the text.
+ *
+ * Paths are checked in the background when their rows are shown. Paths that
+ * don't exist are shown in red and paths whose check doesn't answer in time
+ * in yellow. The UI thread never waits for the file system.
+ *
+ * Changes are staged in the list and applied when the preference page is
+ * applied: the preference is written once and the LLVM Tool options of the
+ * projects are updated in one pass over the workspace.
+ *
  */
-public abstract class LlvmListEditor extends ListEditor {
+public abstract class LlvmListEditor extends FieldEditor {
+
+    //number of rows shown without scrolling
+    private static final int VISIBLE_ROWS = 8;
+
+    /**
+     * The composite containing the filter field and the table;
+     * <code>null</code> if none (before creation or after disposal).
+     */
+    Composite listBox;
+
+    /**
+     * The filter field.
+     */
+    Text filter;
 
     /**
-     * The list widget; <code>null</code> if none
-     * (before creation or after disposal).
+     * The virtual table showing the values matching the filter.
      */
-    List list;
+    Table table;
 
     /**
      * The button box containing the Add, Remove, Up, and Down buttons;
@@ -57,6 +103,11 @@ public abstract class LlvmListEditor extends ListEditor {
      */
     Button addButton;
 
+    /**
+     * The Paste button.
+     */
+    Button pasteButton;
+
     /**
      * The Remove button.
      */
@@ -77,9 +128,37 @@ public abstract class LlvmListEditor extends ListEditor {
 	 */
     private SelectionListener selectionListener;
 
+    /**
+     * The values including the staged changes.
+     * Not initialized here since the controls are created by the super constructor.
+     */
+    private java.util.List<String> items;
+
+    /**
+     * The values matching the filter in the order of the table rows.
+     * The same list as items when there is no filter.
+     */
+    private java.util.List<String> visible;
+
+    /**
+     * The current filter text in lower case, empty if none.
+     */
+    private String filterValue;
+
+    /**
+     * Updates the rows of checked paths; <code>null</code> if the values aren't paths.
+     */
+    private ValidationUpdater validationUpdater;
+
+    /**
+     * The values of the preference when the list was loaded.
+     * Staged changes are computed against these.
+     */
+    private PathList loaded = PathList.EMPTY;
+
     /**
      * Creates a list field editor.
-     * 
+     *
      * @param name the name of the preference this field editor works on
      * @param labelText the label text of the field editor
      * @param parent the parent of the field editor's control
@@ -87,32 +166,174 @@ public abstract class LlvmListEditor extends ListEditor {
     protected LlvmListEditor(String name, String labelText, Composite parent) {
     	super(name, labelText, parent);
     }
-    
-	@Override
+
 	/**
 	 * Combines the given list of items into a single String.
-	 * This method is the converse of parseString. 
+	 * This method is the converse of parseString.
 	 */
-	protected String createList(String[] items) {
-		StringBuilder stringBuilder = new StringBuilder();
-		for (String item : items) {
-			if (stringBuilder.length() > 0) {
-				stringBuilder.append(Separators.getPathSeparator());
-			}
-			stringBuilder.append(item);
-		}
-		return stringBuilder.toString();
+	protected String createList(String[] values) {
+		return PathList.of(values).join();
 	}
 
-	@Override
 	/** Splits the given String into a list of Strings.
 	 * This method is the converse of createList.
 	 */
 	protected String[] parseString(String stringList) {
-		if (stringList != null && stringList.length() > 0) {
-			return stringList.split(Pattern.quote(Separators.getPathSeparator()));
+		return PathList.parse(stringList).toArray();
+	}
+
+	/**
+	 * Returns the value to add, asked from the user.
+	 *
+	 * @return String Value or null if the user cancelled
+	 */
+	protected abstract String getNewInputObject();
+
+	@Override
+	/**
+	 * Adjusts the horizontal span of the controls to the given number of columns.
+	 */
+	protected void adjustForNumColumns(int numColumns) {
+		Control control = getLabelControl();
+		((GridData) control.getLayoutData()).horizontalSpan = numColumns;
+		((GridData) this.listBox.getLayoutData()).horizontalSpan = numColumns - 1;
+	}
+
+	@Override
+	/**
+	 * Creates the label, the filter field with the table and the button box.
+	 */
+	protected void doFillIntoGrid(Composite parent, int numColumns) {
+		Control control = getLabelControl(parent);
+		GridData gd = new GridData();
+		gd.horizontalSpan = numColumns;
+		control.setLayoutData(gd);
+
+		this.listBox = getListBoxControl(parent);
+		gd = new GridData(GridData.FILL_HORIZONTAL);
+		gd.verticalAlignment = GridData.FILL;
+		gd.horizontalSpan = numColumns - 1;
+		gd.grabExcessHorizontalSpace = true;
+		this.listBox.setLayoutData(gd);
+
+		this.buttonBox = getButtonBoxControl(parent);
+		gd = new GridData();
+		gd.verticalAlignment = GridData.BEGINNING;
+		this.buttonBox.setLayoutData(gd);
+	}
+
+	@Override
+	/**
+	 * Returns the number of controls in a row: the table and the button box.
+	 */
+	public int getNumberOfControls() {
+		return 2;
+	}
+
+	@Override
+	/**
+	 * Loads the values from the LLVM preference model.
+	 * The table creates its rows when they are shown.
+	 */
+	protected void doLoad() {
+		if (this.table != null) {
+			this.loaded = LlvmPreferenceStore.getPathList(getPreferenceName());
+			setItems(this.loaded.toArray());
+		}
+	}
+
+	@Override
+	/**
+	 * Loads the default values. They are stored when the page is applied.
+	 */
+	protected void doLoadDefault() {
+		if (this.table != null) {
+			setItems(parseString(getPreferenceStore().getDefaultString(getPreferenceName())));
+		}
+	}
+
+	@Override
+	/**
+	 * Stores the values also when the defaults were restored so that
+	 * the Tool options are updated as well.
+	 */
+	public void store() {
+		if (getPreferenceStore() != null) {
+			doStore();
+		}
+	}
+
+	@Override
+	/**
+	 * Applies the staged changes. The preference is written once and the
+	 * Tool options of every project are updated in one background pass.
+	 */
+	protected void doStore() {
+		if (this.table == null) {
+			return;
+		}
+		String name = getPreferenceName();
+		PathList values = PathList.of(this.items.toArray(new String[this.items.size()]));
+		//keep the values added by others (e.g. a build) while the page was open
+		PathList value = values;
+		for (String v : LlvmPreferenceStore.getPathList(name).asList()) {
+			if (!this.loaded.contains(v)) {
+				value = value.with(v);
+			}
+		}
+		LlvmPreferenceModel.set(name, value);
+		//update the Tool options with the values the user added or removed
+		java.util.List<String> added = new ArrayList<String>();
+		java.util.List<String> removed = new ArrayList<String>();
+		for (String v : values.asList()) {
+			if (!this.loaded.contains(v)) {
+				added.add(v);
+			}
+		}
+		for (String v : this.loaded.asList()) {
+			if (!values.contains(v)) {
+				removed.add(v);
+			}
+		}
+		this.loaded = value;
+		if (added.isEmpty() && removed.isEmpty()) {
+			return;
+		}
+		int var = LlvmProjectPreferences.getToolOptionType(name);
+		LlvmToolOptionBatch batch = new LlvmToolOptionBatch();
+		batch.addAll(removed.toArray(new String[removed.size()]), var, false);
+		batch.addAll(added.toArray(new String[added.size()]), var, true);
+		batch.schedule();
+	}
+
+	@Override
+	/**
+	 * Enables or disables the filter field, the table and the buttons.
+	 */
+	public void setEnabled(boolean enabled, Composite parent) {
+		super.setEnabled(enabled, parent);
+		getListBoxControl(parent);
+		this.filter.setEnabled(enabled);
+		this.table.setEnabled(enabled);
+		this.addButton.setEnabled(enabled);
+		this.pasteButton.setEnabled(enabled);
+		if (enabled) {
+			selectionChanged();
+		} else {
+			this.removeButton.setEnabled(false);
+			this.upButton.setEnabled(false);
+			this.downButton.setEnabled(false);
+		}
+	}
+
+	@Override
+	/**
+	 * Sets the focus to the table.
+	 */
+	public void setFocus() {
+		if (this.table != null) {
+			this.table.setFocus();
 		}
-		return new String[0];
 	}
 
     /**
@@ -121,22 +342,23 @@ public abstract class LlvmListEditor extends ListEditor {
      * @param box the box for the buttons
      */
     private void createButtons(Composite box) {
-        this.addButton = createPushButton(box, "ListEditor.add");//$NON-NLS-1$
-        this.removeButton = createPushButton(box, "ListEditor.remove");//$NON-NLS-1$
-        this.upButton = createPushButton(box, "ListEditor.up");//$NON-NLS-1$
-        this.downButton = createPushButton(box, "ListEditor.down");//$NON-NLS-1$
+        this.addButton = createPushButton(box, JFaceResources.getString("ListEditor.add"));//$NON-NLS-1$
+        this.pasteButton = createPushButton(box, Messages.LlvmListEditor_0);
+        this.removeButton = createPushButton(box, JFaceResources.getString("ListEditor.remove"));//$NON-NLS-1$
+        this.upButton = createPushButton(box, JFaceResources.getString("ListEditor.up"));//$NON-NLS-1$
+        this.downButton = createPushButton(box, JFaceResources.getString("ListEditor.down"));//$NON-NLS-1$
     }
 
     /**
      * Helper method to create a push button.
-     * 
+     *
      * @param parent the parent control
-     * @param key the resource name used to supply the button's label text
+     * @param label the button's label text
      * @return Button
      */
-    private Button createPushButton(Composite parent, String key) {
+    private Button createPushButton(Composite parent, String label) {
         Button button = new Button(parent, SWT.PUSH);
-        button.setText(JFaceResources.getString(key));
+        button.setText(label);
         button.setFont(parent.getFont());
         GridData data = new GridData(GridData.FILL_HORIZONTAL);
         int widthHint = convertHorizontalDLUsToPixels(button,
@@ -151,7 +373,6 @@ public abstract class LlvmListEditor extends ListEditor {
     /**
      * Creates a selection listener.
      */
-    @Override
 	public void createSelectionListener() {
         this.selectionListener = new SelectionAdapter() {
             @Override
@@ -159,13 +380,15 @@ public abstract class LlvmListEditor extends ListEditor {
                 Widget widget = event.widget;
                 if (widget == LlvmListEditor.this.addButton) {
                     addPressed();
+                } else if (widget == LlvmListEditor.this.pasteButton) {
+                    pastePressed();
                 } else if (widget == LlvmListEditor.this.removeButton) {
                     removePressed();
                 } else if (widget == LlvmListEditor.this.upButton) {
                     upPressed();
                 } else if (widget == LlvmListEditor.this.downButton) {
                     downPressed();
-                } else if (widget == LlvmListEditor.this.list) {
+                } else if (widget == LlvmListEditor.this.table) {
                     selectionChanged();
                 }
             }
@@ -179,7 +402,6 @@ public abstract class LlvmListEditor extends ListEditor {
      * @param parent the parent control
      * @return the button box
      */
-    @Override
 	public Composite getButtonBoxControl(Composite parent) {
         if (this.buttonBox == null) {
             this.buttonBox = new Composite(parent, SWT.NULL);
@@ -190,6 +412,7 @@ public abstract class LlvmListEditor extends ListEditor {
             this.buttonBox.addDisposeListener(new DisposeListener() {
                 public void widgetDisposed(DisposeEvent event) {
                     LlvmListEditor.this.addButton = null;
+                    LlvmListEditor.this.pasteButton = null;
                     LlvmListEditor.this.removeButton = null;
                     LlvmListEditor.this.upButton = null;
                     LlvmListEditor.this.downButton = null;
@@ -206,27 +429,75 @@ public abstract class LlvmListEditor extends ListEditor {
     }
 
     /**
-     * Returns this field editor's list control.
+     * Returns this field editor's composite containing the filter field
+     * and the virtual table.
      *
      * @param parent the parent control
-     * @return the list control
-     */
-    @Override
-	public List getListControl(Composite parent) {
-        if (this.list == null) {
-            this.list = new List(parent, SWT.BORDER | SWT.MULTI | SWT.V_SCROLL
-                    | SWT.H_SCROLL);
-            this.list.setFont(parent.getFont());
-            this.list.addSelectionListener(getSelectionListener());
-            this.list.addDisposeListener(new DisposeListener() {
+     * @return the composite
+     */
+	public Composite getListBoxControl(Composite parent) {
+        if (this.listBox == null) {
+            if (this.items == null) {
+                this.items = new ArrayList<String>();
+                this.visible = this.items;
+                this.filterValue = ""; //$NON-NLS-1$
+            }
+            this.listBox = new Composite(parent, SWT.NULL);
+            GridLayout layout = new GridLayout();
+            layout.marginWidth = 0;
+            layout.marginHeight = 0;
+            this.listBox.setLayout(layout);
+            this.listBox.setFont(parent.getFont());
+
+            this.filter = new Text(this.listBox, SWT.SINGLE | SWT.BORDER | SWT.SEARCH | SWT.ICON_CANCEL);
+            this.filter.setFont(parent.getFont());
+            this.filter.setMessage(Messages.LlvmListEditor_1);
+            this.filter.setLayoutData(new GridData(GridData.FILL_HORIZONTAL));
+            this.filter.addModifyListener(new ModifyListener() {
+                public void modifyText(ModifyEvent event) {
+                    filterChanged();
+                }
+            });
+
+            this.table = new Table(this.listBox, SWT.BORDER | SWT.MULTI | SWT.VIRTUAL
+                    | SWT.FULL_SELECTION | SWT.V_SCROLL | SWT.H_SCROLL);
+            this.table.setFont(parent.getFont());
+            //the rows are filled when they become visible
+            this.table.addListener(SWT.SetData, new Listener() {
+                public void handleEvent(Event event) {
+                    TableItem item = (TableItem) event.item;
+                    int index = event.index;
+                    if (index >= 0 && index < LlvmListEditor.this.visible.size()) {
+                        updateItem(item, LlvmListEditor.this.visible.get(index));
+                    }
+                }
+            });
+            this.table.addSelectionListener(getSelectionListener());
+            GridData gd = new GridData(GridData.FILL_BOTH);
+            gd.heightHint = this.table.getItemHeight() * VISIBLE_ROWS;
+            this.table.setLayoutData(gd);
+            this.table.setItemCount(this.visible.size());
+
+            if (validatesPaths()) {
+                this.validationUpdater = new ValidationUpdater(this.table.getDisplay());
+                LlvmPathValidator.addListener(this.validationUpdater);
+            }
+
+            this.listBox.addDisposeListener(new DisposeListener() {
                 public void widgetDisposed(DisposeEvent event) {
-                    LlvmListEditor.this.list = null;
+                    if (LlvmListEditor.this.validationUpdater != null) {
+                        LlvmPathValidator.removeListener(LlvmListEditor.this.validationUpdater);
+                        LlvmListEditor.this.validationUpdater = null;
+                    }
+                    LlvmListEditor.this.filter = null;
+                    LlvmListEditor.this.table = null;
+                    LlvmListEditor.this.listBox = null;
                 }
             });
         } else {
-            checkParent(this.list, parent);
+            checkParent(this.listBox, parent);
         }
-        return this.list;
+        return this.listBox;
     }
 
     /**
@@ -240,43 +511,158 @@ public abstract class LlvmListEditor extends ListEditor {
         return this.selectionListener;
     }
 
+    /**
+     * Returns true if the values are paths that should exist.
+     * The default implementation returns true.
+     *
+     * @return boolean
+     */
+    protected boolean validatesPaths() {
+        return true;
+    }
+
+    /**
+     * Fills a table row when it becomes visible. Paths are checked in the
+     * background and the row is decorated with the last known state.
+     *
+     * @param item Table row
+     * @param value Value shown in the row
+     */
+    protected void updateItem(TableItem item, String value) {
+        item.setText(value);
+        if (this.validationUpdater == null) {
+            return;
+        }
+        //doesn't check again if checked recently, the row is updated when the state changes
+        LlvmPathValidator.validate(new String[] {value});
+        switch (LlvmPathValidator.getState(value)) {
+        case MISSING:
+            decorate(item, FieldDecorationRegistry.DEC_ERROR, SWT.COLOR_RED);
+            break;
+        case TIMED_OUT:
+            decorate(item, FieldDecorationRegistry.DEC_WARNING, SWT.COLOR_DARK_YELLOW);
+            break;
+        default:
+            item.setImage((Image) null);
+            item.setForeground(null);
+            break;
+        }
+    }
+
+    /**
+     * Shows a decoration image and a text color in a table row.
+     *
+     * @param item Table row
+     * @param decoration Id of the decoration in FieldDecorationRegistry
+     * @param color Id of the system color
+     */
+    private static void decorate(TableItem item, String decoration, int color) {
+        //the images of the registry are shared and not disposed here
+        item.setImage(FieldDecorationRegistry.getDefault().getFieldDecoration(decoration).getImage());
+        item.setForeground(item.getDisplay().getSystemColor(color));
+    }
+
 	/**
-	 * Invoked when the selection in the list has changed.
-	 * 
+	 * Invoked when the selection in the table has changed.
+	 *
 	 * <p>
-	 * The default implementation of this method utilizes the selection index
-	 * and the size of the list to toggle the enablement of the up, down and
-	 * remove buttons.
+	 * Enables the Remove button when values are selected and the Up and
+	 * Down buttons when one value is selected and no filter is used.
+	 * Only the selection count and index are read from the table.
 	 * </p>
-	 * 
+	 *
 	 */
-    @Override
 	protected void selectionChanged() {
-        int index = this.list.getSelectionIndex();
-        int size = this.list.getItemCount();
+        if (this.removeButton == null || this.table == null) {
+            return;
+        }
+        int count = this.table.getSelectionCount();
+        int index = this.table.getSelectionIndex();
+        int size = this.visible.size();
+        boolean movable = count == 1 && this.filterValue.length() == 0;
 
-        this.removeButton.setEnabled(index >= 0);
-        this.upButton.setEnabled(size > 1 && index > 0);
-        this.downButton.setEnabled(size > 1 && index >= 0 && index < size - 1);
+        this.removeButton.setEnabled(count > 0);
+        this.upButton.setEnabled(movable && index > 0);
+        this.downButton.setEnabled(movable && index >= 0 && index < size - 1);
+    }
+
+    /**
+     * Replaces the values shown in the table.
+     *
+     * @param values Values
+     */
+    private void setItems(String[] values) {
+        this.items = new ArrayList<String>(values.length);
+        Collections.addAll(this.items, values);
+        this.visible = matching(this.items, this.filterValue);
+        refresh();
+    }
+
+    /**
+     * Returns the values containing the filter text. Case is ignored.
+     *
+     * @param values Values to filter
+     * @param text Filter text in lower case
+     * @return java.util.List<String> Matching values, the given list if there is no filter
+     */
+    private static java.util.List<String> matching(java.util.List<String> values, String text) {
+        if (text.length() == 0) {
+            return values;
+        }
+        java.util.List<String> matches = new ArrayList<String>();
+        for (String value : values) {
+            if (value.toLowerCase(Locale.ENGLISH).contains(text)) {
+                matches.add(value);
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Invoked when the filter text has changed. When the text is extended only the
+     * values that matched the previous text are filtered again.
+     */
+    void filterChanged() {
+        String text = this.filter.getText().trim().toLowerCase(Locale.ENGLISH);
+        if (text.equals(this.filterValue)) {
+            return;
+        }
+        boolean narrowed = this.filterValue.length() != 0 && text.startsWith(this.filterValue);
+        this.visible = matching(narrowed ? this.visible : this.items, text);
+        this.filterValue = text;
+        this.table.deselectAll();
+        refresh();
+    }
+
+    /**
+     * Updates the table after the shown values have changed.
+     * The rows are filled again when they become visible.
+     */
+    private void refresh() {
+        if (this.table != null) {
+            this.table.setItemCount(this.visible.size());
+            this.table.clearAll();
+        }
+        selectionChanged();
     }
 
     /**
      * Moves the currently selected item up or down.
+     * Only possible when no filter is used.
      *
      * @param up <code>true</code> if the item should move up,
      *  and <code>false</code> if it should move down
      */
     private void swap(boolean up) {
         setPresentsDefaultValue(false);
-        int index = this.list.getSelectionIndex();
+        int index = this.table.getSelectionIndex();
         int target = up ? index - 1 : index + 1;
 
-        if (index >= 0) {
-            String[] selection = this.list.getSelection();
-            Assert.isTrue(selection.length == 1);
-            this.list.remove(index);
-            this.list.add(selection[0], target);
-            this.list.setSelection(target);
+        if (index >= 0 && target >= 0 && target < this.items.size()) {
+            Collections.swap(this.items, index, target);
+            this.table.clear(index);
+            this.table.clear(target);
+            this.table.setSelection(target);
         }
         selectionChanged();
     }
@@ -290,37 +676,134 @@ public abstract class LlvmListEditor extends ListEditor {
      *
      * @return the shell
      */
-    @Override
 	protected Shell getShell() {
         if (this.addButton == null) {
 			return null;
 		}
         return this.addButton.getShell();
     }
-    
+
+    /**
+     * Returns the values to add, asked from the user.
+     * The default implementation asks one value with getNewInputObject.
+     *
+     * @return String[] Values, empty if the user cancelled
+     */
+    protected String[] getNewInputObjects() {
+        String input = getNewInputObject();
+        return input != null ? new String[] {input} : new String[0];
+    }
+
+    /**
+     * Splits pasted text to values. Values may be separated by line breaks
+     * or by the path separator.
+     *
+     * @param text Pasted text
+     * @return String[] Values
+     */
+    protected String[] parsePastedText(String text) {
+        java.util.List<String> values = new ArrayList<String>();
+        for (String line : text.split("[\\r\\n]+")) { //$NON-NLS-1$
+            for (String value : line.split(Pattern.quote(Separators.getPathSeparator()))) {
+                values.add(value);
+            }
+        }
+        return values.toArray(new String[values.size()]);
+    }
+
+    /**
+     * Adds values after the selected item or to the beginning of the list.
+     * Empty values and values already in the list are ignored. The filter
+     * is cleared so that the added values are shown.
+     * The values are staged until the preference page is applied.
+     *
+     * @param values Values to add
+     */
+    void addItems(String[] values) {
+        setPresentsDefaultValue(false);
+        int selected = this.table.getSelectionIndex();
+        int index = selected >= 0 ? this.items.indexOf(this.visible.get(selected)) + 1 : 0;
+        //values are compared like the preference does, built once for all added values
+        PathSet existing = new PathSet(this.items.toArray(new String[this.items.size()]), validatesPaths());
+        java.util.List<String> newItems = new ArrayList<String>();
+        for (String value : values) {
+            value = value.trim();
+            if (existing.add(value)) {
+                newItems.add(value);
+            }
+        }
+        if (newItems.isEmpty()) {
+            return;
+        }
+        this.items.addAll(index, newItems);
+        this.filterValue = ""; //$NON-NLS-1$
+        this.visible = this.items;
+        //the modify listener sees that the filter is already cleared
+        this.filter.setText(""); //$NON-NLS-1$
+        this.table.deselectAll();
+        refresh();
+    }
+
     /**
      * Notifies that the Add button has been pressed.
      */
     void addPressed() {
-        setPresentsDefaultValue(false);
-        String input = getNewInputObject();
+        addItems(getNewInputObjects());
+    }
 
-        if (input != null) {
-            int index = this.list.getSelectionIndex();
-            if (index >= 0) {
-				this.list.add(input, index + 1);
-			} else {
-				this.list.add(input, 0);
-			}
-            selectionChanged();
+    /**
+     * Notifies that the Paste button has been pressed.
+     * Adds the values of the text in the clipboard.
+     */
+    void pastePressed() {
+        Clipboard clipboard = new Clipboard(this.table.getDisplay());
+        try {
+            String text = (String) clipboard.getContents(TextTransfer.getInstance());
+            if (text != null) {
+                addItems(parsePastedText(text));
+            }
+        } finally {
+            clipboard.dispose();
         }
     }
-    
+
     /**
      * Notifies that the Remove button has been pressed.
+     * The selected values are removed in one pass over the list and the table
+     * is updated once. The removal is staged until the preference page is applied.
      */
-    protected abstract void removePressed();
-    
+    protected void removePressed() {
+        int[] selection = this.table.getSelectionIndices();
+        if (selection.length == 0) {
+            return;
+        }
+        setPresentsDefaultValue(false);
+        Set<String> removed = new HashSet<String>();
+        for (int index : selection) {
+            removed.add(this.visible.get(index));
+        }
+        java.util.List<String> remaining = new ArrayList<String>(this.items.size() - removed.size());
+        for (String item : this.items) {
+            if (!removed.contains(item)) {
+                remaining.add(item);
+            }
+        }
+        this.items = remaining;
+        if (this.filterValue.length() == 0) {
+            this.visible = remaining;
+        } else {
+            java.util.List<String> shown = new ArrayList<String>(this.visible.size());
+            for (String item : this.visible) {
+                if (!removed.contains(item)) {
+                    shown.add(item);
+                }
+            }
+            this.visible = shown;
+        }
+        this.table.deselectAll();
+        refresh();
+    }
+
     /**
      * Notifies that the Up button has been pressed.
      */
@@ -334,5 +817,53 @@ public abstract class LlvmListEditor extends ListEditor {
     void downPressed() {
         swap(false);
     }
-	
-}
+
+    /**
+     * Updates the rows of the paths whose state has changed. The states are
+     * received in the checking threads and the rows are updated once in the UI
+     * thread for every burst of changes.
+     */
+    private class ValidationUpdater implements LlvmPathValidator.IPathValidationListener, Runnable {
+
+        private final Display display;
+        //paths changed since the last update
+        private final Set<String> changed = new HashSet<String>();
+
+        ValidationUpdater(Display display) {
+            this.display = display;
+        }
+
+        public void pathValidated(String path, LlvmPathValidator.State state) {
+            synchronized (this.changed) {
+                boolean posted = !this.changed.isEmpty();
+                this.changed.add(path);
+                if (posted) {
+                    return;
+                }
+            }
+            if (!this.display.isDisposed()) {
+                this.display.asyncExec(this);
+            }
+        }
+
+        public void run() {
+            Set<String> paths;
+            synchronized (this.changed) {
+                paths = new HashSet<String>(this.changed);
+                this.changed.clear();
+            }
+            Table t = LlvmListEditor.this.table;
+            if (t == null || t.isDisposed()) {
+                return;
+            }
+            //the rows are filled again when they are shown
+            java.util.List<String> shown = LlvmListEditor.this.visible;
+            for (int i = 0; i < shown.size(); i++) {
+                if (paths.contains(shown.get(i))) {
+                    t.clear(i);
+                }
+            }
+        }
+    }
+
+}
\ No newline at end of file
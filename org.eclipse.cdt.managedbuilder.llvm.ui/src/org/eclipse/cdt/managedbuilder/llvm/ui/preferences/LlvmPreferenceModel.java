@@ -0,0 +1,336 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2013 Nokia Siemens Networks Oyj, Finland.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *      Nokia Siemens Networks - initial implementation
+ *      Petri Tuononen - Initial implementation
+ *******************************************************************************/
+package org.eclipse.cdt.managedbuilder.llvm.ui.preferences;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.eclipse.cdt.managedbuilder.llvm.util.LlvmToolOptionPathUtil;
+import org.eclipse.cdt.managedbuilder.llvm.util.PathList;
+import org.eclipse.cdt.managedbuilder.llvm.util.PathSet;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.core.runtime.preferences.IEclipsePreferences;
+import org.eclipse.core.runtime.preferences.IEclipsePreferences.IPreferenceChangeListener;
+import org.eclipse.core.runtime.preferences.IEclipsePreferences.PreferenceChangeEvent;
+import org.osgi.service.prefs.BackingStoreException;
+
+/**
+ * In-memory model of the list valued LLVM preferences (include paths,
+ * library paths and libraries). Each list is parsed once from the preference
+ * node and then kept as a PathList. Values are compared by the canonical key
+ * of PathSet like the Tool option values they are copied to.
+ *
+ * Changes are read-modify-write operations done under one lock, so concurrent
+ * changes from the preference page and pre-build steps aren't lost. Each change
+ * is written to the preference node at once, after the lock has been released,
+ * and the node is saved once after a burst of changes. Changes made directly to
+ * the preference node (e.g. by the preference page) are followed. Listeners
+ * receive the old and new lists.
+ *
+ * This class is not intended to be subclassed by clients.
+ */
+public final class LlvmPreferenceModel {
+
+	//delay before saving so that a burst of changes is saved once
+	private static final long FLUSH_DELAY_MS = 500;
+
+	//guards the lists
+	private static final Object lock = new Object();
+	//orders the writes to the preference node, never taken while holding lock
+	private static final Object writeLock = new Object();
+	//lists by preference name, loaded when first needed
+	private static final Map<String, PathList> lists = new HashMap<String, PathList>();
+	private static final List<IPathListChangeListener> listeners =
+		new CopyOnWriteArrayList<IPathListChangeListener>();
+	//thread writing the model to the preference node, the node events it causes are ignored
+	private static volatile Thread writer;
+	//true while following the preference node
+	private static boolean listening;
+
+	//follows changes made directly to the preference node
+	private static final IPreferenceChangeListener nodeListener = new IPreferenceChangeListener() {
+		public void preferenceChange(PreferenceChangeEvent event) {
+			nodeChanged(event.getKey(), (String) event.getNewValue());
+		}
+	};
+
+	//saves the preference node
+	private static final Job flushJob = new Job(Messages.LlvmPreferenceModel_0) {
+		@Override
+		protected IStatus run(IProgressMonitor monitor) {
+			flush();
+			return Status.OK_STATUS;
+		}
+	};
+
+	static {
+		flushJob.setSystem(true);
+	}
+
+	private LlvmPreferenceModel() {
+	}
+
+	/**
+	 * Starts following the preference node. Called when the plug-in is started.
+	 */
+	public static void startup() {
+		synchronized (lock) {
+			listen();
+		}
+	}
+
+	/**
+	 * Saves pending changes and stops following the preference node.
+	 * Called when the plug-in is stopped.
+	 */
+	public static void shutdown() {
+		flushJob.cancel();
+		flush();
+		synchronized (lock) {
+			if (listening) {
+				getNode().removePreferenceChangeListener(nodeListener);
+				listening = false;
+			}
+			lists.clear();
+		}
+	}
+
+	/**
+	 * Returns the values of a list valued preference.
+	 *
+	 * @param name the name of the preference
+	 * @return PathList Values
+	 */
+	public static PathList get(String name) {
+		synchronized (lock) {
+			return load(name);
+		}
+	}
+
+	/**
+	 * Adds and removes values of a list valued preference as one change.
+	 * New values are added to the end of the list.
+	 *
+	 * @param name the name of the preference
+	 * @param added Values to add if not yet in the list, may be null
+	 * @param removed Values to remove, may be null
+	 * @return boolean true if the preference changed
+	 */
+	public static boolean update(String name, String[] added, String[] removed) {
+		PathListChangeEvent event;
+		synchronized (lock) {
+			PathList oldValue = load(name);
+			PathSet values = new PathSet(oldValue.toArray(), isPaths(name));
+			if (removed != null) {
+				values.removeAll(removed);
+			}
+			if (added != null) {
+				values.addAll(added);
+			}
+			if (!values.isModified()) {
+				return false;
+			}
+			event = store(name, oldValue, PathList.of(values.toArray()));
+		}
+		return publish(event);
+	}
+
+	/**
+	 * Replaces the values of a list valued preference.
+	 * Values equal to an earlier value are dropped.
+	 *
+	 * @param name the name of the preference
+	 * @param value New values
+	 * @return boolean true if the preference changed
+	 */
+	public static boolean set(String name, PathList value) {
+		PathSet values = new PathSet(value.toArray(), isPaths(name));
+		PathList newValue = values.size() == value.size() ? value : PathList.of(values.toArray());
+		PathListChangeEvent event;
+		synchronized (lock) {
+			event = store(name, load(name), newValue);
+		}
+		return publish(event);
+	}
+
+	/**
+	 * Saves the preference node now.
+	 */
+	public static void flush() {
+		try {
+			getNode().flush();
+		} catch (BackingStoreException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Adds a listener. Adding a listener again has no effect.
+	 *
+	 * @param listener Listener
+	 */
+	public static void addListener(IPathListChangeListener listener) {
+		if (!listeners.contains(listener)) {
+			listeners.add(listener);
+		}
+	}
+
+	/**
+	 * Removes a listener.
+	 *
+	 * @param listener Listener
+	 */
+	public static void removeListener(IPathListChangeListener listener) {
+		listeners.remove(listener);
+	}
+
+	/**
+	 * Returns true if the values of the preference are paths, false for library names.
+	 *
+	 * @param name the name of the preference
+	 * @return boolean
+	 */
+	private static boolean isPaths(String name) {
+		return LlvmProjectPreferences.getToolOptionType(name) != LlvmToolOptionPathUtil.LIB;
+	}
+
+	/**
+	 * Returns the preference node.
+	 *
+	 * @return IEclipsePreferences LLVM preferences
+	 */
+	private static IEclipsePreferences getNode() {
+		return LlvmPreferenceStore.getPreferenceStore();
+	}
+
+	/**
+	 * Starts following the preference node unless already following. Called with the lock held.
+	 */
+	private static void listen() {
+		if (!listening) {
+			getNode().addPreferenceChangeListener(nodeListener);
+			listening = true;
+		}
+	}
+
+	/**
+	 * Returns a list, loading it from the preference node the first time. Called with the lock held.
+	 *
+	 * @param name the name of the preference
+	 * @return PathList Values
+	 */
+	private static PathList load(String name) {
+		PathList list = lists.get(name);
+		if (list == null) {
+			//changes made to the node after this have to be seen
+			listen();
+			list = PathList.parse(getNode().get(name, "")); //$NON-NLS-1$
+			lists.put(name, list);
+		}
+		return list;
+	}
+
+	/**
+	 * Writes a changed list to the model. Called with the lock held.
+	 *
+	 * @param name the name of the preference
+	 * @param oldValue Values before the change
+	 * @param newValue Values after the change
+	 * @return PathListChangeEvent Change or null if nothing changed
+	 */
+	private static PathListChangeEvent store(String name, PathList oldValue, PathList newValue) {
+		if (newValue.equals(oldValue)) {
+			return null;
+		}
+		lists.put(name, newValue);
+		return new PathListChangeEvent(name, oldValue, newValue);
+	}
+
+	/**
+	 * Writes a change of the model to the preference node and notifies the listeners.
+	 * Called without the lock, so the listeners of the node don't run under it.
+	 *
+	 * @param event Change or null if nothing changed
+	 * @return boolean true if there was a change
+	 */
+	private static boolean publish(PathListChangeEvent event) {
+		if (event == null) {
+			return false;
+		}
+		synchronized (writeLock) {
+			//a later change may have been written already, the node gets the current list
+			PathList value;
+			synchronized (lock) {
+				value = lists.get(event.getName());
+			}
+			if (value != null) {
+				Thread previous = writer;
+				writer = Thread.currentThread();
+				try {
+					getNode().put(event.getName(), value.join());
+				} finally {
+					writer = previous;
+				}
+			}
+		}
+		flushJob.schedule(FLUSH_DELAY_MS);
+		return fire(event);
+	}
+
+	/**
+	 * Updates the model after a change made directly to the preference node.
+	 *
+	 * @param name the name of the preference
+	 * @param value New value or null if removed
+	 */
+	private static void nodeChanged(String name, String value) {
+		if (Thread.currentThread() == writer) {
+			//written from the model, which is already up to date
+			return;
+		}
+		PathListChangeEvent event = null;
+		synchronized (lock) {
+			PathList oldValue = lists.get(name);
+			//lists that haven't been loaded are read when needed
+			if (oldValue != null) {
+				event = store(name, oldValue, PathList.parse(value));
+			}
+		}
+		fire(event);
+	}
+
+	/**
+	 * Notifies the listeners. Called without the lock.
+	 *
+	 * @param event Change or null if nothing changed
+	 * @return boolean true if there was a change
+	 */
+	private static boolean fire(PathListChangeEvent event) {
+		if (event == null) {
+			return false;
+		}
+		for (IPathListChangeListener listener : listeners) {
+			try {
+				listener.pathListChanged(event);
+			} catch (RuntimeException e) {
+				e.printStackTrace();
+			}
+		}
+		return true;
+	}
+
+}
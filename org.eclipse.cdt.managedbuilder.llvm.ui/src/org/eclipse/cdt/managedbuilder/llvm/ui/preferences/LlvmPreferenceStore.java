@@ -14,8 +14,8 @@ package org.eclipse.cdt.managedbuilder.llvm.ui.preferences;
 import org.eclipse.cdt.managedbuilder.llvm.ui.LlvmEnvironmentVariableSupplier;
 import org.eclipse.cdt.managedbuilder.llvm.ui.LlvmUIPlugin;
 import org.eclipse.cdt.managedbuilder.llvm.util.FindStdLibPath;
-import org.eclipse.cdt.managedbuilder.llvm.util.LlvmToolOptionPathUtil;
-import org.eclipse.cdt.managedbuilder.llvm.util.Separators;
+import org.eclipse.cdt.managedbuilder.llvm.util.PathList;
+import org.eclipse.cdt.managedbuilder.llvm.util.PreBuildSetup;
 import org.eclipse.core.runtime.preferences.IEclipsePreferences;
 import org.eclipse.core.runtime.preferences.InstanceScope;
 
@@ -91,7 +91,45 @@ public class LlvmPreferenceStore {
      * @return A String array containing all Preference store values
 	 */
 	public static String[] getPreferenceStoreValueAsArray(String name) {
-		return LlvmToolOptionPathUtil.stringToArray(name);
+		return getPathList(name).toArray();
+	}
+	
+	/**
+	 * Get values from the LLVM Preference store as a list. The list is
+	 * kept in memory by LlvmPreferenceModel.
+	 * 
+	 * @param name the name of the preference
+	 * @return PathList Preference store values
+	 */
+	public static PathList getPathList(String name) {
+		return LlvmPreferenceModel.get(name);
+	}
+	
+	/**
+	 * Get the LLVM include paths from the LLVM Preference store.
+	 * 
+	 * @return the LLVM include paths.
+	 */
+	public static PathList getIncludePathList() {
+		return getPathList(PreferenceConstants.P_LLVM_INCLUDE_PATH);
+	}
+	
+	/**
+	 * Get the LLVM library paths from the LLVM Preference store.
+	 * 
+	 * @return the LLVM library paths.
+	 */
+	public static PathList getLibraryPathList() {
+		return getPathList(PreferenceConstants.P_LLVM_LIBRARY_PATH);
+	}
+	
+	/**
+	 * Get the LLVM libraries from the LLVM Preference store.
+	 * 
+	 * @return the LLVM libraries.
+	 */
+	public static PathList getLibraryList() {
+		return getPathList(PreferenceConstants.P_LLVM_LIBRARIES);
 	}
 	
 	/**
@@ -140,24 +178,6 @@ public class LlvmPreferenceStore {
 		setPreferenceStoreValue(PreferenceConstants.P_LLVM_LIBRARIES, lib);
 	}
 	
-	/**
-	 * Get existing paths from the Preference store.
-	 * 
-	 * @param name the name of the preference
-	 * @return paths 
-	 */
-	private static String getExistingPaths(String name) {
-		String paths = ""; //$NON-NLS-1$
-		if (name.equals(PreferenceConstants.P_LLVM_INCLUDE_PATH)) {
-			paths = getIncludePath();
-		} else if (name.equals(PreferenceConstants.P_LLVM_LIBRARY_PATH)) {
-			paths = getLibraryPath();
-		} else if (name.equals(PreferenceConstants.P_LLVM_LIBRARIES)) {
-			paths = getLibraries();
-		}	
-		return paths;
-	}
-	
 	/**
 	 * Append a new value to the Preference store if it doesn't already exists.
 	 * 
@@ -165,38 +185,7 @@ public class LlvmPreferenceStore {
 	 * @param value the string-valued preference
 	 */
 	public static void appendValue(String name, String value) {
-		StringBuffer sB = new StringBuffer();
-		String paths = null;
-		//get existing paths
-		paths = getExistingPaths(name);
-		//if values exist
-		if (paths.length()!=0) {
-			//if the value is reasonable
-			if (!value.equalsIgnoreCase("") && value.length()!=0) { //$NON-NLS-1$
-				//if the paths doesn't contain the new value
-				if (!paths.contains(value)) {
-					//append existing paths to the string buffer
-					sB.append(paths);
-					//add a path separator in the end if it doesn't exists
-					if (paths.charAt(paths.length()-1)!=Separators.getPathSeparator().charAt(0)) {
-						sB.append(Separators.getPathSeparator());
-					}
-					//append the new value to end of the list
-					sB.append(value);
-				}				
-			}
-		} else { //no existing values
-			//if the value is reasonable
-			if (!value.equalsIgnoreCase("") && value.length()!=0) { //$NON-NLS-1$
-				//append a new path to the string buffer
-				sB.append(value);
-			}
-		}
-		String newValues = sB.toString();
-		if (newValues.length()!=0) {
-			//set the new preference store value
-			setPreferenceStoreValue(name, newValues);			
-		}
+		LlvmPreferenceModel.update(name, new String[] {value}, null);
 	}
 
 	/**
@@ -233,43 +222,26 @@ public class LlvmPreferenceStore {
 	 * @param value Value to remove from the preference store
 	 */
 	public static void removeValue(String name, String value) {
-		StringBuffer sB = new StringBuffer();
-		String existingValues = null;
-		String newValue = null;
-		//get existing values
-		existingValues = getExistingPaths(name);
-		//if the String contains the value
-		if (existingValues.contains(value)) {
-			//if many values i.e. contains path separator
-			if (existingValues.contains(Separators.getPathSeparator())) {
-				//separate String of values to an array
-				String[] exValArray = existingValues.split(Separators.getPathSeparator());
-				//if more than one value
-				if (exValArray.length > 1) {
-					//remove the value from the array
-					exValArray = LlvmToolOptionPathUtil.removePathFromExistingPathList(exValArray, value);
-					//if the array isn't empty
-					if (exValArray.length > 0) {
-						//append all values to the StringBuffer excluding the removed one
-						for (String val : exValArray) {
-							//append a value
-							sB.append(val);
-							//append a path separator
-							sB.append(Separators.getPathSeparator());
-						}
-						//form a String
-						newValue = sB.toString();
-					}
-				} else { //only one value with a path separator at the end
-					newValue = ""; //$NON-NLS-1$
-				}
-				
-			} else { //only value without a path separator at the end
-				newValue = ""; //$NON-NLS-1$
-			}
-			//set the new preference store value
-			setPreferenceStoreValue(name, newValue);
-		}
+		LlvmPreferenceModel.update(name, null, new String[] {value});
+	}
+
+	/**
+	 * Add and remove values of the LLVM preference store as one change.
+	 * 
+	 * @param name Name of the preference
+	 * @param added Values to append if they don't already exist, may be null
+	 * @param removed Values to remove, may be null
+	 * @return boolean true if the preference store value changed
+	 */
+	public static boolean updateValues(String name, String[] added, String[] removed) {
+		return LlvmPreferenceModel.update(name, added, removed);
+	}
+
+	/**
+	 * Save the LLVM preference store now instead of after the pending changes.
+	 */
+	public static void flush() {
+		LlvmPreferenceModel.flush();
 	}
 	
 	/**
@@ -300,25 +272,11 @@ public class LlvmPreferenceStore {
 	}
 
 	public static void addMinGWStdLib() {
-		String path = LlvmEnvironmentVariableSupplier.getMinGWStdLib();
-		String lib = "stdc++"; //$NON-NLS-1$
-		if (path != null) {
-			//add to preference store
-			appendLibraryPath(path);
-//			ProjectIndex.rebuiltIndex(proj);
-			appendLibrary(lib);
-		}
+		PreBuildSetup.getDefault().addStdLib(LlvmEnvironmentVariableSupplier.getMinGWStdLib());
 	}
 	
 	public static void addStdLibUnix() {
-		String path = FindStdLibPath.find();
-		String lib = "stdc++"; //$NON-NLS-1$
-		if (path != null) {
-			//add to preference store
-			appendLibraryPath(path);
-//			ProjectIndex.rebuiltIndex(proj);
-			appendLibrary(lib);
-		}
+		PreBuildSetup.getDefault().addStdLib(FindStdLibPath.find());
 	}
-	
+
 }
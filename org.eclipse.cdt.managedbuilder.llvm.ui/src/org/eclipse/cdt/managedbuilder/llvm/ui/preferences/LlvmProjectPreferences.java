@@ -0,0 +1,398 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2013 Nokia Siemens Networks Oyj, Finland.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *      Nokia Siemens Networks - initial implementation
+ *      Petri Tuononen - Initial implementation
+ *******************************************************************************/
+package org.eclipse.cdt.managedbuilder.llvm.ui.preferences;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.cdt.managedbuilder.llvm.ui.LlvmUIPlugin;
+import org.eclipse.cdt.managedbuilder.llvm.util.LlvmToolOptionBatch;
+import org.eclipse.cdt.managedbuilder.llvm.util.LlvmToolOptionPathUtil;
+import org.eclipse.cdt.managedbuilder.llvm.util.PathList;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.ProjectScope;
+import org.eclipse.core.runtime.preferences.IEclipsePreferences;
+import org.osgi.service.prefs.BackingStoreException;
+
+/**
+ * Project specific include paths, library paths and libraries. A project
+ * inherits the values of the LLVM preference page and may add values of its
+ * own and exclude inherited values. The additions are stored in the project
+ * preferences under the name of the preference and the exclusions under the
+ * name with EXCLUDED_SUFFIX appended.
+ *
+ * The values of a project are resolved when needed and cached until the
+ * inherited values or the project preferences change. Changing the values of
+ * a project, also by editing its preference file, only modifies the build
+ * configurations of that project.
+ *
+ * This class is not intended to be subclassed by clients.
+ */
+public class LlvmProjectPreferences {
+
+	//appended to the preference name of the excluded values
+	public static final String EXCLUDED_SUFFIX = ".excluded"; //$NON-NLS-1$
+
+	//resolved values by project and preference name
+	private static final Map<IProject, Map<String, Resolved>> cache = new HashMap<IProject, Map<String, Resolved>>();
+
+	/**
+	 * Returns the values of a list valued preference in a project:
+	 * the inherited values without the excluded ones followed by the added values.
+	 *
+	 * @param proj IProject Project or null for the LLVM preference page values
+	 * @param name the name of the preference, e.g. PreferenceConstants.P_LLVM_INCLUDE_PATH
+	 * @return PathList Values
+	 */
+	public static PathList getPathList(IProject proj, String name) {
+		if (proj == null || !proj.isAccessible()) {
+			return LlvmPreferenceStore.getPathList(name);
+		}
+		return resolve(proj, name).value;
+	}
+
+	/**
+	 * Returns the values a project adds to the inherited values.
+	 *
+	 * @param proj IProject Project
+	 * @param name the name of the preference
+	 * @return PathList Added values
+	 */
+	public static PathList getAdded(IProject proj, String name) {
+		if (!proj.isAccessible()) {
+			return PathList.EMPTY;
+		}
+		return resolve(proj, name).addedList;
+	}
+
+	/**
+	 * Returns the inherited values a project excludes.
+	 *
+	 * @param proj IProject Project
+	 * @param name the name of the preference
+	 * @return PathList Excluded values
+	 */
+	public static PathList getExcluded(IProject proj, String name) {
+		if (!proj.isAccessible()) {
+			return PathList.EMPTY;
+		}
+		return resolve(proj, name).excludedList;
+	}
+
+	/**
+	 * Returns true if a project adds or excludes any include path, library path or library.
+	 *
+	 * @param proj IProject Project
+	 * @return boolean
+	 */
+	public static boolean hasOverrides(IProject proj) {
+		if (!proj.isAccessible()) {
+			return false;
+		}
+		for (String name : getListNames()) {
+			Resolved resolved = resolve(proj, name);
+			if (!resolved.addedList.isEmpty() || !resolved.excludedList.isEmpty()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Adds and removes values of a project. Removing an inherited value excludes it,
+	 * adding an excluded value includes it again. The build configurations of the
+	 * project are updated in the background when the project preferences change.
+	 *
+	 * @param proj IProject Project
+	 * @param name the name of the preference
+	 * @param added Values to add, may be null
+	 * @param removed Values to remove, may be null
+	 * @see #preferenceChanged(IProject, String, String)
+	 */
+	public static void update(IProject proj, String name, String[] added, String[] removed) {
+		synchronized (LlvmProjectPreferences.class) {
+			PathList inherited = LlvmPreferenceStore.getPathList(name);
+			PathList projectAdded = getAdded(proj, name);
+			PathList projectExcluded = getExcluded(proj, name);
+			if (removed != null) {
+				for (String value : removed) {
+					projectAdded = projectAdded.without(value);
+					if (inherited.contains(value)) {
+						projectExcluded = projectExcluded.with(value);
+					}
+				}
+			}
+			if (added != null) {
+				for (String value : added) {
+					projectExcluded = projectExcluded.without(value);
+					if (!inherited.contains(value)) {
+						projectAdded = projectAdded.with(value);
+					}
+				}
+			}
+			store(proj, name, projectAdded, projectExcluded);
+		}
+	}
+
+	/**
+	 * Removes the additions and exclusions of a project so that it uses the
+	 * inherited values again. The build configurations of the project are
+	 * updated in the background when the project preferences change.
+	 *
+	 * @param proj IProject Project
+	 * @param name the name of the preference
+	 * @see #preferenceChanged(IProject, String, String)
+	 */
+	public static void reset(IProject proj, String name) {
+		synchronized (LlvmProjectPreferences.class) {
+			store(proj, name, PathList.EMPTY, PathList.EMPTY);
+		}
+	}
+
+	/**
+	 * Updates the build configurations of a project after one of its preferences
+	 * changed, e.g. by update or by editing the preference file of the project.
+	 * Called by LlvmInvalidationBus in the thread that changed the preference.
+	 *
+	 * @param proj IProject Project
+	 * @param key Key of the changed project preference
+	 * @param oldValue Value before the change, null if it didn't exist
+	 */
+	public static void preferenceChanged(IProject proj, String key, String oldValue) {
+		boolean excludedChanged = key.endsWith(EXCLUDED_SUFFIX);
+		String name = excludedChanged ? key.substring(0, key.length() - EXCLUDED_SUFFIX.length()) : key;
+		if (getToolOptionType(name) == 0 || !proj.isAccessible()) {
+			return;
+		}
+		IEclipsePreferences node = getNode(proj);
+		String old = oldValue != null ? oldValue : ""; //$NON-NLS-1$
+		//the values before the change differ from the current ones only by the changed key
+		String oldAdded = excludedChanged ? node.get(name, "") : old; //$NON-NLS-1$
+		String oldExcluded = excludedChanged ? old : node.get(name + EXCLUDED_SUFFIX, ""); //$NON-NLS-1$
+		PathList before = resolve(LlvmPreferenceStore.getPathList(name),
+				PathList.parse(oldAdded), PathList.parse(oldExcluded));
+		apply(proj, name, before, getPathList(proj, name));
+	}
+
+	/**
+	 * Discards the resolved values of a project.
+	 * Called when the project is closed, removed or reconfigured.
+	 *
+	 * @param proj IProject Project
+	 */
+	public static void invalidate(IProject proj) {
+		synchronized (cache) {
+			cache.remove(proj);
+		}
+	}
+
+	/**
+	 * Returns the names of the list valued preferences.
+	 *
+	 * @return String[] Preference names
+	 */
+	public static String[] getListNames() {
+		return new String[] {PreferenceConstants.P_LLVM_INCLUDE_PATH,
+				PreferenceConstants.P_LLVM_LIBRARY_PATH, PreferenceConstants.P_LLVM_LIBRARIES};
+	}
+
+	/**
+	 * Returns the Tool option type that receives the values of a list valued preference.
+	 *
+	 * @param name the name of the preference
+	 * @return int Tool option's value (INCLUDE, LIB or LIB_PATH) or 0 for other preferences
+	 */
+	public static int getToolOptionType(String name) {
+		if (PreferenceConstants.P_LLVM_INCLUDE_PATH.equals(name)) {
+			return LlvmToolOptionPathUtil.INCLUDE;
+		} else if (PreferenceConstants.P_LLVM_LIBRARIES.equals(name)) {
+			return LlvmToolOptionPathUtil.LIB;
+		} else if (PreferenceConstants.P_LLVM_LIBRARY_PATH.equals(name)) {
+			return LlvmToolOptionPathUtil.LIB_PATH;
+		}
+		return 0;
+	}
+
+	/**
+	 * Returns the list valued preference of a Tool option type.
+	 *
+	 * @param var Tool option's value (INCLUDE, LIB or LIB_PATH)
+	 * @return String Preference name or null
+	 */
+	public static String getPreferenceName(int var) {
+		switch (var) {
+		case LlvmToolOptionPathUtil.INCLUDE:
+			return PreferenceConstants.P_LLVM_INCLUDE_PATH;
+		case LlvmToolOptionPathUtil.LIB:
+			return PreferenceConstants.P_LLVM_LIBRARIES;
+		case LlvmToolOptionPathUtil.LIB_PATH:
+			return PreferenceConstants.P_LLVM_LIBRARY_PATH;
+		default:
+			return null;
+		}
+	}
+
+	/**
+	 * Writes the additions and exclusions of a project.
+	 *
+	 * @param proj IProject Project
+	 * @param name the name of the preference
+	 * @param added Added values
+	 * @param excluded Excluded values
+	 */
+	private static void store(IProject proj, String name, PathList added, PathList excluded) {
+		IEclipsePreferences node = getNode(proj);
+		if (added.isEmpty()) {
+			node.remove(name);
+		} else {
+			node.put(name, added.join());
+		}
+		if (excluded.isEmpty()) {
+			node.remove(name + EXCLUDED_SUFFIX);
+		} else {
+			node.put(name + EXCLUDED_SUFFIX, excluded.join());
+		}
+		try {
+			node.flush();
+		} catch (BackingStoreException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Updates the build configurations of a project after its values changed.
+	 *
+	 * @param proj IProject Project
+	 * @param name the name of the preference
+	 * @param before Values before the change
+	 * @param after Values after the change
+	 */
+	private static void apply(IProject proj, String name, PathList before, PathList after) {
+		int var = getToolOptionType(name);
+		if (var == 0 || before.equals(after)) {
+			return;
+		}
+		LlvmToolOptionBatch batch = new LlvmToolOptionBatch();
+		batch.setProjects(new IProject[] {proj});
+		for (String value : before.asList()) {
+			if (!after.contains(value)) {
+				batch.addAll(new String[] {value}, var, false);
+			}
+		}
+		for (String value : after.asList()) {
+			if (!before.contains(value)) {
+				batch.addAll(new String[] {value}, var, true);
+			}
+		}
+		//only the configurations of this project are modified
+		batch.schedule();
+	}
+
+	/**
+	 * Returns the values of a project, resolving them if the cached values are out of date.
+	 *
+	 * @param proj IProject Project, must be accessible
+	 * @param name the name of the preference
+	 * @return Resolved Values
+	 */
+	private static Resolved resolve(IProject proj, String name) {
+		PathList inherited = LlvmPreferenceStore.getPathList(name);
+		IEclipsePreferences node = getNode(proj);
+		String added = node.get(name, ""); //$NON-NLS-1$
+		String excluded = node.get(name + EXCLUDED_SUFFIX, ""); //$NON-NLS-1$
+		synchronized (cache) {
+			Map<String, Resolved> values = cache.get(proj);
+			Resolved resolved = values != null ? values.get(name) : null;
+			if (resolved != null && resolved.isValid(inherited, added, excluded)) {
+				return resolved;
+			}
+		}
+		//resolve outside of the lock
+		PathList addedList = PathList.parse(added);
+		PathList excludedList = PathList.parse(excluded);
+		Resolved resolved = new Resolved(inherited, added, excluded, addedList, excludedList,
+				resolve(inherited, addedList, excludedList));
+		synchronized (cache) {
+			Map<String, Resolved> values = cache.get(proj);
+			if (values == null) {
+				values = new HashMap<String, Resolved>(4);
+				cache.put(proj, values);
+			}
+			values.put(name, resolved);
+		}
+		return resolved;
+	}
+
+	/**
+	 * Returns the inherited values without the excluded ones followed by the added values.
+	 *
+	 * @param inherited Inherited values
+	 * @param added Values added by the project
+	 * @param excluded Values excluded by the project
+	 * @return PathList Values of the project
+	 */
+	private static PathList resolve(PathList inherited, PathList added, PathList excluded) {
+		PathList value = inherited;
+		for (String v : excluded.asList()) {
+			value = value.without(v);
+		}
+		return value.withAll(added.toArray());
+	}
+
+	/**
+	 * Returns the preferences of the plug-in in a project.
+	 *
+	 * @param proj IProject Project
+	 * @return IEclipsePreferences Project preferences
+	 */
+	public static IEclipsePreferences getNode(IProject proj) {
+		return new ProjectScope(proj).getNode(LlvmUIPlugin.PLUGIN_ID);
+	}
+
+	/**
+	 * Values of one project resolved from the inherited values and the project preferences.
+	 */
+	private static final class Resolved {
+
+		final PathList inherited;
+		final String added;
+		final String excluded;
+		final PathList addedList;
+		final PathList excludedList;
+		final PathList value;
+
+		Resolved(PathList inherited, String added, String excluded, PathList addedList,
+				PathList excludedList, PathList value) {
+			this.inherited = inherited;
+			this.added = added;
+			this.excluded = excluded;
+			this.addedList = addedList;
+			this.excludedList = excludedList;
+			this.value = value;
+		}
+
+		/**
+		 * Returns true if the value was resolved from the given values.
+		 *
+		 * @param inheritedValue Inherited values
+		 * @param addedValue Project preference of the added values
+		 * @param excludedValue Project preference of the excluded values
+		 * @return boolean
+		 */
+		boolean isValid(PathList inheritedValue, String addedValue, String excludedValue) {
+			//the preference model returns the same list until the preference changes
+			return this.inherited == inheritedValue && this.added.equals(addedValue)
+				&& this.excluded.equals(excludedValue);
+		}
+	}
+
+}
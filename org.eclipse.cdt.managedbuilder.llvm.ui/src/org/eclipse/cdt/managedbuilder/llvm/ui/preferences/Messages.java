@@ -21,6 +21,9 @@ public class Messages extends NLS {
 	public static String LibraryListEditor_0;
 	public static String LibraryPathListEditor_0;
 	public static String LibraryPathListEditor_1;
+	public static String LlvmListEditor_0;
+	public static String LlvmListEditor_1;
+	public static String LlvmPreferenceModel_0;
 	public static String LlvmPreferencePage_0;
 	public static String LlvmPreferencePage_1;
 	public static String LlvmPreferencePage_2;
@@ -0,0 +1,109 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2013 Nokia Siemens Networks Oyj, Finland.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *      Nokia Siemens Networks - initial implementation
+ *      Petri Tuononen - Initial implementation
+ *******************************************************************************/
+package org.eclipse.cdt.managedbuilder.llvm.ui.preferences;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.cdt.managedbuilder.llvm.util.PathList;
+
+/**
+ * Describes a change of a list valued LLVM preference.
+ *
+ */
+public class PathListChangeEvent {
+
+	private final String name;
+	private final PathList oldValue;
+	private final PathList newValue;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param name the name of the preference
+	 * @param oldValue Values before the change
+	 * @param newValue Values after the change
+	 */
+	public PathListChangeEvent(String name, PathList oldValue, PathList newValue) {
+		this.name = name;
+		this.oldValue = oldValue;
+		this.newValue = newValue;
+	}
+
+	/**
+	 * Returns the name of the changed preference, e.g. PreferenceConstants.P_LLVM_INCLUDE_PATH.
+	 *
+	 * @return String preference name
+	 */
+	public String getName() {
+		return this.name;
+	}
+
+	/**
+	 * Returns the values before the change.
+	 *
+	 * @return PathList Old values
+	 */
+	public PathList getOldValue() {
+		return this.oldValue;
+	}
+
+	/**
+	 * Returns the values after the change.
+	 *
+	 * @return PathList New values
+	 */
+	public PathList getNewValue() {
+		return this.newValue;
+	}
+
+	/**
+	 * Returns the values that were added.
+	 *
+	 * @return List of added values
+	 */
+	public List<String> getAdded() {
+		return difference(this.newValue, this.oldValue);
+	}
+
+	/**
+	 * Returns the values that were removed.
+	 *
+	 * @return List of removed values
+	 */
+	public List<String> getRemoved() {
+		return difference(this.oldValue, this.newValue);
+	}
+
+	/**
+	 * Returns the values of a list that aren't in another list.
+	 *
+	 * @param list List
+	 * @param other Other list
+	 * @return List of values
+	 */
+	private static List<String> difference(PathList list, PathList other) {
+		List<String> result = new ArrayList<String>();
+		for (String value : list.asList()) {
+			if (!other.contains(value)) {
+				result.add(value);
+			}
+		}
+		return result;
+	}
+
+	@Override
+	public String toString() {
+		return this.name + ": " + this.oldValue + " -> " + this.newValue; //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+}
@@ -12,33 +12,121 @@
 package org.eclipse.cdt.managedbuilder.llvm.util;
 
 import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.Set;
 
+/**
+ * Scans directory trees on the file system for source files.
+ * Used when the workspace resource tree doesn't know the files of a project
+ * yet, e.g. for projects that have been created or edited outside Eclipse.
+ *
+ * File name extensions are matched exactly. Version control directories and
+ * the given excluded directories, identified by their location rather than
+ * their name, are not descended into and a presence check
+ * stops at the first hit. Every directory is scanned once even if it is reached
+ * through several symbolic links, so link loops don't make the scan endless.
+ *
+ */
 public class FileUtil {
 
+	//version control directories that never contain project sources
+	private static final Set<String> VCS_DIRECTORIES = Collections.unmodifiableSet(new HashSet<String>(
+			Arrays.asList(new String[] {".git", ".svn", ".hg", ".bzr", "CVS"}))); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$
+
 	/**
-	 * Searches cpp and cc file types recursively and returns true if
+	 * Searches C++ source files recursively and returns true if
 	 * the directory tree contains at least one instance of them.
-	 *  
-	 * @param directory
-	 * @param filter
-	 * @return
+	 * Version control directories are skipped.
+	 *
+	 * @param directory Root directory
+	 * @return boolean True if the directory tree contains a C++ source file
 	 */
 	public static boolean containsCppFile(File directory) {
-		File[] entries = directory.listFiles();
-		String path = null;
-		for (File entry : entries) {
-			path = entry.getAbsolutePath();
-			if (path!=null) {
-				if (path.contains(".cpp") || path.contains(".cc")) { //$NON-NLS-1$ //$NON-NLS-2$
-					return true;
+		return containsSourceFile(directory, SourceLanguageIndex.CPP, Collections.<String>emptySet());
+	}
+
+	/**
+	 * Searches source files of a language recursively and stops at the first hit.
+	 *
+	 * @param directory Root directory
+	 * @param language Source language, see SourceLanguageIndex
+	 * @param excludedDirs Canonical paths of directories that are not descended into
+	 * @return boolean True if the directory tree contains a source file of the language
+	 */
+	public static boolean containsSourceFile(File directory, int language, Set<String> excludedDirs) {
+		return scan(directory, excludedDirs, language)[language] > 0;
+	}
+
+	/**
+	 * Counts the source files of every language in a directory tree.
+	 *
+	 * @param directory Root directory
+	 * @param excludedDirs Canonical paths of directories that are not descended into
+	 * @return int[] Number of files by source language, see SourceLanguageIndex
+	 */
+	public static int[] countSourceFiles(File directory, Set<String> excludedDirs) {
+		return scan(directory, excludedDirs, -1);
+	}
+
+	/**
+	 * Scans a directory tree breadth first in the calling thread.
+	 *
+	 * @param root Root directory
+	 * @param excludedDirs Canonical paths of directories that are not descended into
+	 * @param stopLanguage Source language whose first file ends the scan, or -1 to count everything
+	 * @return int[] Number of files by source language
+	 */
+	private static int[] scan(File root, Set<String> excludedDirs, int stopLanguage) {
+		int[] counts = new int[SourceLanguageIndex.LLVM_BITCODE + 1];
+		//canonical paths of the directories already queued
+		Set<String> visited = new HashSet<String>();
+		LinkedList<File> dirs = new LinkedList<File>();
+		if (root.isDirectory() && visit(root, visited, excludedDirs)) {
+			dirs.add(root);
+		}
+		while (!dirs.isEmpty()) {
+			File dir = dirs.removeFirst();
+			String[] names = dir.list();
+			if (names == null) { //not readable
+				continue;
+			}
+			for (String name : names) {
+				int language = SourceLanguageIndex.getLanguage(name);
+				File entry = new File(dir, name);
+				if (language >= 0 && entry.isFile()) {
+					counts[language]++;
+					if (language == stopLanguage) {
+						return counts;
+					}
+				} else if (!VCS_DIRECTORIES.contains(name) && entry.isDirectory()
+						&& visit(entry, visited, excludedDirs)) {
+					dirs.add(entry);
 				}
 			}
+		}
+		return counts;
+	}
 
-			if (entry.isDirectory()) {
-				containsCppFile(entry);
-			}
+	/**
+	 * Marks a directory visited. Directories are identified by their canonical path
+	 * so that a directory reached again through a symbolic link is recognized.
+	 *
+	 * @param dir Directory
+	 * @param visited Canonical paths of the visited directories
+	 * @param excludedDirs Canonical paths of directories that are not descended into
+	 * @return boolean False if the directory is excluded, was already visited or can't be resolved
+	 */
+	private static boolean visit(File dir, Set<String> visited, Set<String> excludedDirs) {
+		try {
+			String path = dir.getCanonicalPath();
+			return !excludedDirs.contains(path) && visited.add(path);
+		} catch (IOException e) {
+			return false;
 		}
-		return false;
 	}
-	
+
 }
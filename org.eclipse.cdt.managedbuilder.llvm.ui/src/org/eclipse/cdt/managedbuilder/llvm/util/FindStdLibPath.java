@@ -11,55 +11,154 @@
  *******************************************************************************/
 package org.eclipse.cdt.managedbuilder.llvm.util;
 
-import java.io.BufferedReader;
-import java.io.IOException;
-import java.io.InputStreamReader;
-import java.lang.ProcessBuilder;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import org.eclipse.cdt.managedbuilder.llvm.ui.LlvmEnvironmentVariableSupplier;
 
 /**
  * The purpose is to find a path where stdc++ library is located.
- * Currently the shell script is only for Linux.
  * 
- * TODO: It might not be able to execute scripts therefore place the command into a variable.
+ * The configured clang is asked where it would link the library from
+ * (-print-file-name and -print-search-dirs). The result is cached by the
+ * compiler path, size and modification time and saved in the plug-in state
+ * location, so clang is only run again when the toolchain changes.
  */
 public class FindStdLibPath {
 
-	private static final String WIN_SCRIPT = "scripts/find_path.bat"; //$NON-NLS-1$
 	private static final String STD_LIB = "libstdc++.a"; //$NON-NLS-1$
-	private static final String UNIX_SCRIPT = " echo `locate libstdc++.a | sort -r | head -1 | sed \"s/libstdc++.a$//\"` "; //$NON-NLS-1$
-	private static final String MAC_SCRIPT = " echo `locate libstdc++.dylib | sort -r | head -1 | sed \"s/libstdc++.dylib$//\"` "; //$NON-NLS-1$
-	
+	private static final String STD_LIB_MAC = "libstdc++.dylib"; //$NON-NLS-1$
+	private static final String CLANG = "clang"; //$NON-NLS-1$
+	private static final String LIBRARIES = "libraries: ="; //$NON-NLS-1$
+	//file in the plug-in state location where the results are saved
+	private static final String STATE_FILE = "stdLibPaths.properties"; //$NON-NLS-1$
+	//value saved for a compiler that didn't find the library
+	private static final String NOT_FOUND = ""; //$NON-NLS-1$
+	//time clang may run before it is destroyed
+	private static final long CLANG_TIMEOUT_MS = 10000;
+
+	//results by compiler key
+	private static Properties cache;
+
 	/**
 	 * Find stdc++ library path.
 	 * 
-	 * @return Stdc++ library path.
+	 * @return Stdc++ library path or null if not found.
 	 */
 	public static String find() {
-		ProcessBuilder pb = null;
-		String os = System.getProperty("os.name").toLowerCase(); //$NON-NLS-1$
-		if (os.indexOf("win") >= 0) { //$NON-NLS-1$
-			pb = new ProcessBuilder("cmd", "/c", WIN_SCRIPT + " " + STD_LIB);    //$NON-NLS-1$//$NON-NLS-2$ //$NON-NLS-3$
-		} else if (os.indexOf( "nix") >=0 || os.indexOf( "nux") >=0) { //$NON-NLS-1$ //$NON-NLS-2$
-			pb = new ProcessBuilder("bash", "-c", UNIX_SCRIPT);    //$NON-NLS-1$//$NON-NLS-2$
-		} else if (os.indexOf( "mac" ) >= 0) { //$NON-NLS-1$
-			pb = new ProcessBuilder("bash", "-c", MAC_SCRIPT);    //$NON-NLS-1$//$NON-NLS-2$
-		} else {
+		return find(ProcessRunner.getDefault());
+	}
+
+	/**
+	 * Find stdc++ library path.
+	 * 
+	 * @param runner Runs clang if the path isn't cached
+	 * @return Stdc++ library path or null if not found.
+	 */
+	public static String find(ProcessRunner runner) {
+		File clang = findClang();
+		if (clang == null) {
 			return null;
 		}
-		try {
-			Process p = pb.start();
-			String line;
-			BufferedReader input = new BufferedReader
-					(new InputStreamReader(p.getInputStream()));
-			line = input.readLine();
-			input.close();
-			if (line != null) {
-				return line;
+		String lib = System.getProperty("os.name").toLowerCase().indexOf("mac") >= 0 ? STD_LIB_MAC : STD_LIB; //$NON-NLS-1$ //$NON-NLS-2$
+		String key = clang.getAbsolutePath() + '|' + clang.length() + '|' + clang.lastModified() + '|' + lib;
+		String path;
+		synchronized (FindStdLibPath.class) {
+			path = getCache().getProperty(key);
+		}
+		if (path == null) {
+			//run clang outside of the lock so that a slow clang doesn't block other builds
+			path = askCompiler(runner, clang, lib);
+			synchronized (FindStdLibPath.class) {
+				getCache().setProperty(key, path == null ? NOT_FOUND : path);
+				saveCache();
+			}
+		}
+		return path == null || path.length()==0 ? null : path;
+	}
+
+	/**
+	 * Returns the clang executable from the LLVM bin directory or from PATH.
+	 * 
+	 * @return File clang executable or null if not found
+	 */
+	private static File findClang() {
+		String exe = CLANG;
+		if (System.getProperty("os.name").toLowerCase().indexOf("win") >= 0) { //$NON-NLS-1$ //$NON-NLS-2$
+			exe = exe + ".exe"; //$NON-NLS-1$
+		}
+		List<String> dirs = new ArrayList<String>();
+		String binPath = LlvmEnvironmentVariableSupplier.getBinPath();
+		if (binPath != null) {
+			dirs.add(binPath);
+		}
+		String pathVariable = System.getenv("PATH"); //$NON-NLS-1$
+		if (pathVariable != null) {
+			for (String dir : pathVariable.split(Separators.getPathSeparator())) {
+				dirs.add(dir);
+			}
+		}
+		for (String dir : dirs) {
+			File clang = new File(dir, exe);
+			if (clang.isFile()) {
+				return clang;
 			}
-		} catch (IOException e) {
-			e.printStackTrace();
 		}
 		return null;
 	}
-	
+
+	/**
+	 * Asks the compiler for the directory of the library.
+	 * 
+	 * @param runner Runs the compiler
+	 * @param clang Compiler
+	 * @param lib Library file name
+	 * @return Directory or null if not found
+	 */
+	private static String askCompiler(ProcessRunner runner, File clang, String lib) {
+		//prints the full path if the library is found, otherwise only the name
+		List<String> output = runner.run(CLANG_TIMEOUT_MS, clang.getAbsolutePath(), "-print-file-name=" + lib); //$NON-NLS-1$
+		if (!output.isEmpty()) {
+			File file = new File(output.get(0).trim());
+			if (file.isAbsolute() && file.isFile()) {
+				return file.getParent();
+			}
+		}
+		//look through the library search directories
+		for (String line : runner.run(CLANG_TIMEOUT_MS, clang.getAbsolutePath(), "-print-search-dirs")) { //$NON-NLS-1$
+			if (line.startsWith(LIBRARIES)) {
+				for (String dir : line.substring(LIBRARIES.length()).split(Separators.getPathSeparator())) {
+					if (dir.length()>0 && new File(dir, lib).isFile()) {
+						return new File(dir).getAbsolutePath();
+					}
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the cached results, loading them from the state file the first time.
+	 * 
+	 * @return Properties Cached results
+	 */
+	private static Properties getCache() {
+		if (cache == null) {
+			cache = StateFile.load(STATE_FILE);
+			if (cache == null) {
+				cache = new Properties();
+			}
+		}
+		return cache;
+	}
+
+	/**
+	 * Saves the cached results to the state file.
+	 */
+	private static void saveCache() {
+		StateFile.save(STATE_FILE, cache);
+	}
+
 }
@@ -0,0 +1,147 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2013 Nokia Siemens Networks Oyj, Finland.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *      Nokia Siemens Networks - initial implementation
+ *      Petri Tuononen - Initial implementation
+ *******************************************************************************/
+package org.eclipse.cdt.managedbuilder.llvm.util;
+
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * An LLVM installation found by LlvmInstallRegistry.
+ *
+ */
+public class LlvmInstall {
+
+	//tools whose presence is recorded
+	public static final String CLANG = "clang"; //$NON-NLS-1$
+	public static final String CLANG_CPP = "clang++"; //$NON-NLS-1$
+	public static final String LLI = "lli"; //$NON-NLS-1$
+	public static final String LLC = "llc"; //$NON-NLS-1$
+	public static final String OPT = "opt"; //$NON-NLS-1$
+	public static final String LLVM_LINK = "llvm-link"; //$NON-NLS-1$
+	public static final String LLVM_LD = "llvm-ld"; //$NON-NLS-1$
+	public static final String LLVM_AS = "llvm-as"; //$NON-NLS-1$
+	public static final String LLVM_GCC = "llvm-gcc"; //$NON-NLS-1$
+	public static final String LLVM_GPP = "llvm-g++"; //$NON-NLS-1$
+	static final String[] TOOLS = {CLANG, CLANG_CPP, LLI, LLC, OPT, LLVM_LINK,
+		LLVM_LD, LLVM_AS, LLVM_GCC, LLVM_GPP};
+
+	private final String binDir;
+	private final String version;
+	private final Set<String> tools;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param binDir bin directory of the installation
+	 * @param version LLVM version or null if unknown
+	 * @param tools Tools found in the bin directory
+	 */
+	LlvmInstall(String binDir, String version, Set<String> tools) {
+		this.binDir = binDir;
+		this.version = version;
+		this.tools = Collections.unmodifiableSet(tools);
+	}
+
+	/**
+	 * Returns the bin directory.
+	 *
+	 * @return String bin directory
+	 */
+	public String getBinDir() {
+		return this.binDir;
+	}
+
+	/**
+	 * Returns the LLVM version, e.g. "3.2" or "3.3svn".
+	 *
+	 * @return String version or null if unknown
+	 */
+	public String getVersion() {
+		return this.version;
+	}
+
+	/**
+	 * Returns true if the bin directory contains the tool.
+	 *
+	 * @param tool Tool name, e.g. CLANG
+	 * @return boolean
+	 */
+	public boolean hasTool(String tool) {
+		return this.tools.contains(tool);
+	}
+
+	/**
+	 * Returns the tools found in the bin directory.
+	 *
+	 * @return Set of tool names
+	 */
+	public Set<String> getTools() {
+		return this.tools;
+	}
+
+	/**
+	 * Compares the versions of two installations. An unknown version is the oldest.
+	 *
+	 * @param other Installation
+	 * @return int Negative, zero or positive if this installation is older, as old or newer
+	 */
+	public int compareVersion(LlvmInstall other) {
+		int[] v1 = parseVersion(this.version);
+		int[] v2 = parseVersion(other.version);
+		for (int i = 0; i < Math.max(v1.length, v2.length); i++) {
+			int n1 = i < v1.length ? v1[i] : 0;
+			int n2 = i < v2.length ? v2[i] : 0;
+			if (n1 != n2) {
+				return n1 < n2 ? -1 : 1;
+			}
+		}
+		return v1.length - v2.length;
+	}
+
+	/**
+	 * Returns the numeric parts of a version. Parsing stops at the first non-numeric part.
+	 *
+	 * @param version Version or null
+	 * @return int[] Numeric parts, empty if unknown
+	 */
+	private static int[] parseVersion(String version) {
+		if (version == null) {
+			return new int[0];
+		}
+		String[] parts = version.split("\\."); //$NON-NLS-1$
+		int[] numbers = new int[parts.length];
+		int count = 0;
+		for (String part : parts) {
+			int end = 0;
+			while (end < part.length() && Character.isDigit(part.charAt(end))) {
+				end++;
+			}
+			if (end == 0) {
+				break;
+			}
+			numbers[count++] = Integer.parseInt(part.substring(0, end));
+			//e.g. "3svn"
+			if (end < part.length()) {
+				break;
+			}
+		}
+		int[] result = new int[count];
+		System.arraycopy(numbers, 0, result, 0, count);
+		return result;
+	}
+
+	@Override
+	public String toString() {
+		return "LLVM " + (this.version != null ? this.version : "?") + " (" + this.binDir + ")"; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+	}
+
+}
@@ -0,0 +1,490 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2013 Nokia Siemens Networks Oyj, Finland.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *      Nokia Siemens Networks - initial implementation
+ *      Petri Tuononen - Initial implementation
+ *******************************************************************************/
+package org.eclipse.cdt.managedbuilder.llvm.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.eclipse.cdt.managedbuilder.core.IConfiguration;
+import org.eclipse.cdt.managedbuilder.llvm.ui.LlvmUIPlugin;
+import org.eclipse.cdt.managedbuilder.llvm.ui.preferences.LlvmPreferenceStore;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.ProjectScope;
+import org.eclipse.core.runtime.preferences.IEclipsePreferences;
+import org.osgi.service.prefs.BackingStoreException;
+
+/**
+ * Finds every LLVM installation from the LLVM installation folder preference,
+ * PATH and standard installation prefixes. A directory is an LLVM installation
+ * if it contains llvm-ar.
+ *
+ * The version and the tools of each installation are probed once and saved in
+ * the plug-in state location by the path, size and modification time of llvm-ar.
+ * The search itself is cached until the preference or PATH change or a found
+ * directory is modified.
+ *
+ * The installation folder preference is the default installation. Without it the
+ * newest version is used. Projects and build configurations can pin an installation.
+ *
+ */
+public class LlvmInstallRegistry {
+
+	private static final String LLVM_AR = "llvm-ar"; //$NON-NLS-1$
+	private static final String LLVM_CONFIG = "llvm-config"; //$NON-NLS-1$
+	private static final String BIN = "bin"; //$NON-NLS-1$
+	//file in the plug-in state location where the probe results are saved
+	private static final String STATE_FILE = "llvmInstalls.properties"; //$NON-NLS-1$
+	//project preference of a pinned installation, the configuration id is appended
+	private static final String PIN_KEY = "llvmInstall"; //$NON-NLS-1$
+	//part of the probe key, increased when the probed tools change
+	private static final int PROBE_FORMAT = 2;
+	//time llvm-config and llvm-ar may run before they are destroyed
+	private static final long PROBE_TIMEOUT_MS = 5000;
+	//time a search without results is trusted since installations can't be detected cheaply
+	private static final long NOT_FOUND_TIMEOUT = 5000;
+	//e.g. "LLVM version 3.2svn"
+	private static final Pattern VERSION = Pattern.compile("version\\s+(\\d[\\w.]*)"); //$NON-NLS-1$
+
+	private static final boolean WINDOWS =
+		System.getProperty("os.name").toLowerCase().indexOf("win") >= 0; //$NON-NLS-1$ //$NON-NLS-2$
+
+	//bin directories of common installations
+	private static final String[] STANDARD_DIRS = WINDOWS
+		? new String[] {"C:\\Program Files\\LLVM\\bin", "C:\\Program Files (x86)\\LLVM\\bin"} //$NON-NLS-1$ //$NON-NLS-2$
+		: new String[] {"/usr/bin", "/usr/local/bin", "/opt/local/bin", "/usr/local/opt/llvm/bin"}; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+	//directories whose llvm* subdirectories are versioned installations, e.g. /usr/lib/llvm-3.2
+	private static final String[] VERSIONED_PARENTS = WINDOWS
+		? new String[0]
+		: new String[] {"/usr/lib", "/usr/local", "/opt"}; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+
+	//result of the last search
+	private static final AtomicReference<Discovery> discovery = new AtomicReference<Discovery>();
+	//held while searching so that concurrent callers wait for one search
+	private static final Object discoveryLock = new Object();
+	//probe results by llvm-ar key
+	private static Properties probes;
+
+	/**
+	 * Returns every LLVM installation, the default installation first.
+	 *
+	 * @return List of installations
+	 */
+	public static List<LlvmInstall> getInstalls() {
+		return getDiscovery().installs;
+	}
+
+	/**
+	 * Returns the installation from the LLVM installation folder preference
+	 * or the newest installation if the preference isn't set.
+	 *
+	 * @return LlvmInstall Installation or null if LLVM isn't found
+	 */
+	public static LlvmInstall getDefaultInstall() {
+		List<LlvmInstall> installs = getDiscovery().installs;
+		return installs.isEmpty() ? null : installs.get(0);
+	}
+
+	/**
+	 * Returns the installation used by a build configuration.
+	 *
+	 * @param cf IConfiguration Build configuration
+	 * @return LlvmInstall Pinned or default installation, null if LLVM isn't found
+	 */
+	public static LlvmInstall getInstall(IConfiguration cf) {
+		LlvmInstall install = getPinnedInstall(cf);
+		return install != null ? install : getDefaultInstall();
+	}
+
+	/**
+	 * Returns the installation pinned for a build configuration or its project.
+	 *
+	 * @param cf IConfiguration Build configuration
+	 * @return LlvmInstall Installation or null if nothing is pinned or the pinned installation is gone
+	 */
+	public static LlvmInstall getPinnedInstall(IConfiguration cf) {
+		IResource owner = cf.getOwner();
+		if (owner == null || owner.getProject() == null) {
+			return null;
+		}
+		IProject proj = owner.getProject();
+		String binDir = getPin(proj, cf.getId());
+		if (binDir == null) {
+			binDir = getPin(proj, null);
+		}
+		return binDir != null ? getInstallAt(binDir) : null;
+	}
+
+	/**
+	 * Returns the bin directory pinned for a build configuration or a project.
+	 *
+	 * @param proj IProject Project
+	 * @param configurationId Build configuration id or null for the project
+	 * @return String bin directory or null if nothing is pinned
+	 */
+	public static String getPin(IProject proj, String configurationId) {
+		if (!proj.isAccessible()) {
+			return null;
+		}
+		return getProjectPreferences(proj).get(getPinKey(configurationId), null);
+	}
+
+	/**
+	 * Pins an installation for a build configuration or a project.
+	 *
+	 * @param proj IProject Project
+	 * @param configurationId Build configuration id or null for the project
+	 * @param binDir bin directory of the installation or null to remove the pin
+	 */
+	public static void pin(IProject proj, String configurationId, String binDir) {
+		IEclipsePreferences prefs = getProjectPreferences(proj);
+		if (binDir == null) {
+			prefs.remove(getPinKey(configurationId));
+		} else {
+			prefs.put(getPinKey(configurationId), binDir);
+		}
+		try {
+			prefs.flush();
+		} catch (BackingStoreException e) {
+			e.printStackTrace();
+		}
+		LlvmInvalidationBus.installPinned(proj);
+	}
+
+	/**
+	 * Returns the installation in a bin directory. The directory
+	 * doesn't have to be one of the found installations.
+	 *
+	 * @param binDir bin directory
+	 * @return LlvmInstall Installation or null if the directory doesn't contain LLVM
+	 */
+	public static LlvmInstall getInstallAt(String binDir) {
+		String dir = getLlvmDir(binDir);
+		if (dir == null) {
+			return null;
+		}
+		for (LlvmInstall install : getInstalls()) {
+			if (install.getBinDir().equals(dir)) {
+				return install;
+			}
+		}
+		return probe(dir);
+	}
+
+	/**
+	 * Returns true if the directory contains LLVM.
+	 *
+	 * @param binDir Directory
+	 * @return boolean
+	 */
+	public static boolean isLlvmDir(String binDir) {
+		return getLlvmDir(binDir) != null;
+	}
+
+	/**
+	 * Discards the search result so that the installations are searched again.
+	 */
+	public static void invalidate() {
+		discovery.set(null);
+	}
+
+	/**
+	 * Returns the current search result, searching again if it isn't valid any more.
+	 * Only one search runs at a time, callers that need a search meanwhile wait for it.
+	 *
+	 * @return Discovery Search result
+	 */
+	private static Discovery getDiscovery() {
+		String preference = LlvmPreferenceStore.getBinPath();
+		String pathVariable = System.getenv("PATH"); //$NON-NLS-1$
+		int pathHash = pathVariable != null ? pathVariable.hashCode() : 0;
+		Discovery current = discovery.get();
+		if (current != null && current.isValid(preference, pathHash)) {
+			return current;
+		}
+		synchronized (discoveryLock) {
+			//another caller may have searched while this one waited
+			current = discovery.get();
+			if (current != null && current.isValid(preference, pathHash)) {
+				return current;
+			}
+			Discovery result = new Discovery(preference, pathHash, discover(preference, pathVariable));
+			discovery.set(result);
+			return result;
+		}
+	}
+
+	/**
+	 * Searches and probes every installation.
+	 *
+	 * @param preference LLVM installation folder preference, may be null
+	 * @param pathVariable Value of PATH, may be null
+	 * @return List of installations, the default installation first
+	 */
+	private static List<LlvmInstall> discover(String preference, String pathVariable) {
+		//the preferred installation
+		String preferred = null;
+		if (preference != null && preference.trim().length() != 0) {
+			preferred = getLlvmDir(preference.trim());
+			if (preferred == null) {
+				preferred = getLlvmDir(preference.trim() + Separators.getFileSeparator() + BIN);
+			}
+		}
+		//candidates in the order of preference
+		Set<String> dirs = new LinkedHashSet<String>();
+		if (preferred != null) {
+			dirs.add(preferred);
+		}
+		List<String> candidates = new ArrayList<String>();
+		if (pathVariable != null) {
+			candidates.addAll(Arrays.asList(pathVariable.split(Separators.getPathSeparator())));
+		}
+		candidates.addAll(Arrays.asList(STANDARD_DIRS));
+		for (String parent : VERSIONED_PARENTS) {
+			String[] names = new File(parent).list();
+			if (names == null) {
+				continue;
+			}
+			Arrays.sort(names);
+			for (String name : names) {
+				if (name.startsWith("llvm")) { //$NON-NLS-1$
+					candidates.add(parent + Separators.getFileSeparator() + name + Separators.getFileSeparator() + BIN);
+				}
+			}
+		}
+		for (String candidate : candidates) {
+			if (candidate.length() != 0) {
+				String dir = getLlvmDir(candidate);
+				if (dir != null) {
+					dirs.add(dir);
+				}
+			}
+		}
+		List<LlvmInstall> installs = new ArrayList<LlvmInstall>();
+		for (String dir : dirs) {
+			installs.add(probe(dir));
+		}
+		if (preferred == null && installs.size() > 1) {
+			//the newest installation first, otherwise in the order found
+			LlvmInstall newest = installs.get(0);
+			for (LlvmInstall install : installs) {
+				if (install.compareVersion(newest) > 0) {
+					newest = install;
+				}
+			}
+			installs.remove(newest);
+			installs.add(0, newest);
+		}
+		return Collections.unmodifiableList(installs);
+	}
+
+	/**
+	 * Returns the canonical path of a directory that contains llvm-ar.
+	 *
+	 * @param candidatePath Directory
+	 * @return String canonical path or null if the directory doesn't contain LLVM
+	 */
+	private static String getLlvmDir(String candidatePath) {
+		File dir = new File(candidatePath);
+		if (!getExecutable(dir, LLVM_AR).isFile()) {
+			return null;
+		}
+		try {
+			return dir.getCanonicalPath();
+		} catch (IOException e) {
+			return dir.getAbsolutePath();
+		}
+	}
+
+	/**
+	 * Returns an executable in a directory.
+	 *
+	 * @param dir Directory
+	 * @param name Executable name without suffix
+	 * @return File Executable
+	 */
+	private static File getExecutable(File dir, String name) {
+		return new File(dir, WINDOWS ? name + ".exe" : name); //$NON-NLS-1$
+	}
+
+	/**
+	 * Returns the version and tools of an installation, probing it only if
+	 * llvm-ar has changed since the last probe.
+	 *
+	 * @param binDir Canonical bin directory
+	 * @return LlvmInstall Installation
+	 */
+	private static LlvmInstall probe(String binDir) {
+		File dir = new File(binDir);
+		File ar = getExecutable(dir, LLVM_AR);
+		String key = PROBE_FORMAT + "|" + ar.getPath() + '|' + ar.length() + '|' + ar.lastModified(); //$NON-NLS-1$
+		String value;
+		synchronized (LlvmInstallRegistry.class) {
+			value = getProbes().getProperty(key);
+		}
+		if (value == null) {
+			//probe outside of the lock since it runs processes
+			value = runProbe(dir);
+			synchronized (LlvmInstallRegistry.class) {
+				getProbes().setProperty(key, value);
+				saveProbes();
+			}
+		}
+		//"version|tool,tool"
+		int separator = value.indexOf('|');
+		String version = value.substring(0, separator);
+		Set<String> tools = new HashSet<String>();
+		for (String tool : value.substring(separator+1).split(",")) { //$NON-NLS-1$
+			if (tool.length() != 0) {
+				tools.add(tool);
+			}
+		}
+		return new LlvmInstall(binDir, version.length() != 0 ? version : null, tools);
+	}
+
+	/**
+	 * Asks the version of an installation and looks for its tools.
+	 *
+	 * @param dir bin directory
+	 * @return String Probe result to be saved
+	 */
+	private static String runProbe(File dir) {
+		String version = null;
+		File config = getExecutable(dir, LLVM_CONFIG);
+		if (config.isFile()) {
+			List<String> output = ProcessRunner.getDefault().run(PROBE_TIMEOUT_MS, config.getAbsolutePath(), "--version"); //$NON-NLS-1$
+			if (!output.isEmpty() && output.get(0).trim().length() != 0) {
+				version = output.get(0).trim();
+			}
+		}
+		if (version == null) {
+			for (String line : ProcessRunner.getDefault().run(PROBE_TIMEOUT_MS,
+					getExecutable(dir, LLVM_AR).getAbsolutePath(), "--version")) { //$NON-NLS-1$
+				Matcher m = VERSION.matcher(line);
+				if (m.find()) {
+					version = m.group(1);
+					break;
+				}
+			}
+		}
+		StringBuffer sB = new StringBuffer();
+		sB.append(version != null ? version : ""); //$NON-NLS-1$
+		sB.append('|');
+		for (String tool : LlvmInstall.TOOLS) {
+			if (getExecutable(dir, tool).isFile()) {
+				sB.append(tool);
+				sB.append(',');
+			}
+		}
+		return sB.toString();
+	}
+
+	/**
+	 * Returns the preferences of the plug-in in a project.
+	 *
+	 * @param proj IProject Project
+	 * @return IEclipsePreferences Project preferences
+	 */
+	private static IEclipsePreferences getProjectPreferences(IProject proj) {
+		return new ProjectScope(proj).getNode(LlvmUIPlugin.PLUGIN_ID);
+	}
+
+	/**
+	 * Returns the preference key of a pinned installation.
+	 *
+	 * @param configurationId Build configuration id or null for the project
+	 * @return String key
+	 */
+	private static String getPinKey(String configurationId) {
+		return configurationId != null ? PIN_KEY + '.' + configurationId : PIN_KEY;
+	}
+
+	/**
+	 * Returns the probe results, loading them from the state file the first time.
+	 *
+	 * @return Properties Probe results
+	 */
+	private static Properties getProbes() {
+		if (probes == null) {
+			probes = StateFile.load(STATE_FILE);
+			if (probes == null) {
+				probes = new Properties();
+			}
+		}
+		return probes;
+	}
+
+	/**
+	 * Saves the probe results to the state file.
+	 */
+	private static void saveProbes() {
+		StateFile.save(STATE_FILE, probes);
+	}
+
+	/**
+	 * Result of one search.
+	 */
+	private static final class Discovery {
+
+		final String preference;
+		final int pathHash;
+		final List<LlvmInstall> installs;
+		//modification times of the bin directories when found
+		final long[] lastModified;
+		final long time = System.currentTimeMillis();
+
+		Discovery(String preference, int pathHash, List<LlvmInstall> installs) {
+			this.preference = preference;
+			this.pathHash = pathHash;
+			this.installs = installs;
+			this.lastModified = new long[installs.size()];
+			for (int i = 0; i < installs.size(); i++) {
+				this.lastModified[i] = new File(installs.get(i).getBinDir()).lastModified();
+			}
+		}
+
+		/**
+		 * Returns true if the result is still valid for the given search parameters.
+		 *
+		 * @param pref LLVM installation folder preference
+		 * @param hash Hash code of PATH
+		 * @return boolean
+		 */
+		boolean isValid(String pref, int hash) {
+			if (hash != this.pathHash || !(pref == null ? this.preference == null : pref.equals(this.preference))) {
+				return false;
+			}
+			if (this.installs.isEmpty()) {
+				return System.currentTimeMillis() - this.time < NOT_FOUND_TIMEOUT;
+			}
+			//e.g. llvm-ar was removed or an installation replaced
+			for (int i = 0; i < this.lastModified.length; i++) {
+				if (new File(this.installs.get(i).getBinDir()).lastModified() != this.lastModified[i]) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+
+}
@@ -0,0 +1,206 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2013 Nokia Siemens Networks Oyj, Finland.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *      Nokia Siemens Networks - initial implementation
+ *      Petri Tuononen - Initial implementation
+ *******************************************************************************/
+package org.eclipse.cdt.managedbuilder.llvm.util;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.cdt.core.model.CoreModel;
+import org.eclipse.cdt.core.settings.model.CProjectDescriptionEvent;
+import org.eclipse.cdt.core.settings.model.ICProjectDescriptionListener;
+import org.eclipse.cdt.managedbuilder.core.IConfiguration;
+import org.eclipse.cdt.managedbuilder.llvm.ui.LlvmEnvironmentVariableSupplier;
+import org.eclipse.cdt.managedbuilder.llvm.ui.preferences.LlvmPreferenceStore;
+import org.eclipse.cdt.managedbuilder.llvm.ui.preferences.LlvmProjectPreferences;
+import org.eclipse.cdt.managedbuilder.llvm.ui.preferences.PreferenceConstants;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.preferences.IEclipsePreferences;
+import org.eclipse.core.runtime.preferences.IEclipsePreferences.IPreferenceChangeListener;
+import org.eclipse.core.runtime.preferences.IEclipsePreferences.PreferenceChangeEvent;
+
+/**
+ * Discards cached LLVM values when the values they were computed from change,
+ * so that the caches don't have to be checked on every use. Changes are received
+ * from the LLVM preference node, from the LLVM preference nodes of the open
+ * projects, from CDT when build settings of a project are applied and from the
+ * plug-in itself. Each change discards only what depends on it:
+ *
+ * - LLVM installation folder: the found installations, the supported tool chains
+ *   and the environment of every build configuration.
+ * - Include paths, library paths and libraries: nothing. They reach the build
+ *   through Tool options whose changes are reported separately.
+ * - Build settings of a project (tool chain, tools, configurations): the Tools and
+ *   Options and the environments of the configurations of the project and the
+ *   resolved project specific values.
+ * - Project specific include paths, library paths and libraries: the Tool options
+ *   of the project are updated by the difference.
+ * - Tool option values of a configuration: the environment of the configuration.
+ * - Installation pinned for a project: the environments of its configurations.
+ *
+ */
+public class LlvmInvalidationBus {
+
+	//changes of the LLVM preferences
+	private static final IPreferenceChangeListener preferenceListener = new IPreferenceChangeListener() {
+		public void preferenceChange(PreferenceChangeEvent event) {
+			preferenceChanged(event.getKey());
+		}
+	};
+
+	//build settings applied to projects
+	private static final ICProjectDescriptionListener descriptionListener = new ICProjectDescriptionListener() {
+		public void handleEvent(CProjectDescriptionEvent event) {
+			IProject proj = event.getProject();
+			if (proj != null) {
+				projectChanged(proj);
+			}
+		}
+	};
+
+	//listeners of the project preference nodes by project
+	private static final Map<IProject, ProjectPreferenceListener> projectListeners =
+		new HashMap<IProject, ProjectPreferenceListener>();
+
+	/**
+	 * Starts receiving changes. Called when the plug-in is started.
+	 */
+	public static void startup() {
+		LlvmPreferenceStore.getPreferenceStore().addPreferenceChangeListener(preferenceListener);
+		CoreModel.getDefault().addCProjectDescriptionListener(descriptionListener,
+				CProjectDescriptionEvent.APPLIED);
+		for (IProject proj : ResourcesPlugin.getWorkspace().getRoot().getProjects()) {
+			followProject(proj);
+		}
+	}
+
+	/**
+	 * Stops receiving changes. Called when the plug-in is stopped.
+	 */
+	public static void shutdown() {
+		synchronized (projectListeners) {
+			for (ProjectPreferenceListener listener : projectListeners.values()) {
+				listener.stop();
+			}
+			projectListeners.clear();
+		}
+		CoreModel.getDefault().removeCProjectDescriptionListener(descriptionListener);
+		LlvmPreferenceStore.getPreferenceStore().removePreferenceChangeListener(preferenceListener);
+	}
+
+	/**
+	 * Discards the values that depend on an LLVM preference.
+	 *
+	 * @param key Preference key
+	 */
+	public static void preferenceChanged(String key) {
+		if (PreferenceConstants.P_LLVM_PATH.equals(key)) {
+			LlvmInstallRegistry.invalidate();
+			LlvmToolChainAvailability.refresh();
+			LlvmEnvironmentVariableSupplier.invalidateAll();
+		}
+		if (LlvmProjectPreferences.getToolOptionType(key) != 0) {
+			//symbolic links may have changed along with the paths
+			PathSet.clearCache();
+		}
+		//the list valued preferences are copied to Tool options, see toolOptionValuesChanged
+	}
+
+	/**
+	 * Discards the values that depend on the build settings of a project.
+	 * Called when the settings are applied or the project is opened, closed or removed.
+	 *
+	 * @param proj IProject Project
+	 */
+	public static void projectChanged(IProject proj) {
+		ToolOptionCache.invalidate(proj);
+		LlvmProjectPreferences.invalidate(proj);
+		LlvmEnvironmentVariableSupplier.invalidate(proj);
+		//an opened project has a new preference node
+		followProject(proj);
+	}
+
+	/**
+	 * Discards the values that depend on the LLVM Tool option values of a configuration.
+	 *
+	 * @param cf IConfiguration Build configuration
+	 */
+	public static void toolOptionValuesChanged(IConfiguration cf) {
+		LlvmEnvironmentVariableSupplier.invalidate(cf);
+	}
+
+	/**
+	 * Discards the values that depend on the LLVM installation pinned for a project
+	 * or for one of its configurations.
+	 *
+	 * @param proj IProject Project
+	 */
+	public static void installPinned(IProject proj) {
+		LlvmEnvironmentVariableSupplier.invalidate(proj);
+	}
+
+	/**
+	 * Starts following the LLVM preference node of an open project
+	 * and stops following the node of a closed or removed project.
+	 *
+	 * @param proj IProject Project
+	 */
+	private static void followProject(IProject proj) {
+		synchronized (projectListeners) {
+			ProjectPreferenceListener listener = projectListeners.get(proj);
+			IEclipsePreferences node = proj.isAccessible() ? LlvmProjectPreferences.getNode(proj) : null;
+			if (listener != null && listener.node == node) {
+				return;
+			}
+			if (listener != null) {
+				listener.stop();
+				projectListeners.remove(proj);
+			}
+			if (node != null) {
+				listener = new ProjectPreferenceListener(proj, node);
+				node.addPreferenceChangeListener(listener);
+				projectListeners.put(proj, listener);
+			}
+		}
+	}
+
+	/**
+	 * Receives the changes of the LLVM preferences of a project,
+	 * including the changes made by editing the preference file of the project.
+	 */
+	private static final class ProjectPreferenceListener implements IPreferenceChangeListener {
+
+		final IProject project;
+		final IEclipsePreferences node;
+
+		ProjectPreferenceListener(IProject project, IEclipsePreferences node) {
+			this.project = project;
+			this.node = node;
+		}
+
+		public void preferenceChange(PreferenceChangeEvent event) {
+			LlvmProjectPreferences.preferenceChanged(this.project, event.getKey(), (String) event.getOldValue());
+		}
+
+		/**
+		 * Stops receiving the changes.
+		 */
+		void stop() {
+			try {
+				this.node.removePreferenceChangeListener(this);
+			} catch (IllegalStateException e) {
+				//the node was removed with the project
+			}
+		}
+	}
+
+}
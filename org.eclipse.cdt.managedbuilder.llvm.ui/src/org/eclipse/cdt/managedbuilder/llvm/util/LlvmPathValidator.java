@@ -0,0 +1,395 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2013 Nokia Siemens Networks Oyj, Finland.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *      Nokia Siemens Networks - initial implementation
+ *      Petri Tuononen - Initial implementation
+ *******************************************************************************/
+package org.eclipse.cdt.managedbuilder.llvm.util;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Checks in the background whether include and library search paths exist.
+ * Paths are checked in parallel by daemon threads and the results are cached
+ * for a while, so the same path isn't checked again for every project or every
+ * table row. Threads are started when needed, up to MAX_THREADS, and end when
+ * they have been idle for a while.
+ *
+ * A check that doesn't answer in time (e.g. an automounted or NFS path that
+ * is not reachable) is reported as TIMED_OUT. The check keeps running and its
+ * result replaces TIMED_OUT when it finally answers. Only one check per path
+ * runs at a time. If every thread is blocked by such checks, other paths are
+ * reported as TIMED_OUT without checking them until a thread is free again.
+ *
+ * Listeners are notified in the checking threads. Callers in the UI thread
+ * must only use getState and validate, which never wait for a check.
+ *
+ * This class is not intended to be subclassed by clients.
+ */
+public class LlvmPathValidator {
+
+	//maximum number of paths checked at the same time
+	private static final int MAX_THREADS = 16;
+	//time an idle checking thread is kept
+	private static final long KEEP_ALIVE_MS = 30000;
+	//time after which a check that hasn't answered is reported as TIMED_OUT
+	private static final long TIMEOUT_MS = 2000;
+	//time a result is used before the path is checked again
+	private static final long CACHE_TTL_MS = 30000;
+
+	/**
+	 * State of a path.
+	 */
+	public enum State {
+		//not checked yet
+		UNKNOWN,
+		//the path exists
+		EXISTS,
+		//the path doesn't exist
+		MISSING,
+		//the check didn't answer in time
+		TIMED_OUT
+	}
+
+	/**
+	 * Listener of path checks.
+	 */
+	public interface IPathValidationListener {
+
+		/**
+		 * Called when the state of a path is known or has changed.
+		 * Called in the checking thread.
+		 *
+		 * @param path Path
+		 * @param state New state
+		 */
+		void pathValidated(String path, State state);
+	}
+
+	//guards the executors and the running checks
+	private static final Object lock = new Object();
+	//results by path
+	private static final Map<String, Result> results = new ConcurrentHashMap<String, Result>();
+	//running checks by path
+	private static final Map<String, Future<State>> running = new HashMap<String, Future<State>>();
+	private static final List<IPathValidationListener> listeners =
+		new CopyOnWriteArrayList<IPathValidationListener>();
+	//checks the paths, created when first needed
+	private static ExecutorService executor;
+	//reports the checks that don't answer in time
+	private static ScheduledExecutorService timer;
+
+	/**
+	 * Stops the checking threads. Called when the plug-in is stopped.
+	 */
+	public static void shutdown() {
+		synchronized (lock) {
+			if (executor != null) {
+				//threads stuck in a check are daemons and don't prevent exiting
+				executor.shutdownNow();
+				timer.shutdownNow();
+				executor = null;
+				timer = null;
+			}
+			running.clear();
+		}
+		results.clear();
+	}
+
+	/**
+	 * Returns the last known state of a path. Never waits for a check.
+	 *
+	 * @param path Path
+	 * @return State UNKNOWN if the path hasn't been checked
+	 */
+	public static State getState(String path) {
+		Result result = results.get(path);
+		return result != null ? result.state : State.UNKNOWN;
+	}
+
+	/**
+	 * Checks the paths in the background unless they were checked recently.
+	 * The listeners are notified of the results. Returns immediately.
+	 *
+	 * @param paths Paths
+	 */
+	public static void validate(String[] paths) {
+		for (String path : paths) {
+			if (!isFresh(path)) {
+				submit(path);
+			}
+		}
+	}
+
+	/**
+	 * Checks the paths in parallel and waits for the results at most the given time.
+	 * Recent results are used without checking again. Must not be called in the UI thread.
+	 *
+	 * @param paths Paths
+	 * @param timeoutMs Maximum time to wait for all paths
+	 * @return Map<String, State> State of every path, TIMED_OUT for paths that didn't answer in time
+	 */
+	public static Map<String, State> checkAll(String[] paths, long timeoutMs) {
+		Map<String, State> states = new LinkedHashMap<String, State>();
+		Map<String, Future<State>> checks = new LinkedHashMap<String, Future<State>>();
+		for (String path : paths) {
+			Result result = results.get(path);
+			if (result != null && result.isRecent()) {
+				states.put(path, result.state);
+			} else if (!checks.containsKey(path)) {
+				checks.put(path, submit(path));
+			}
+		}
+		long deadline = System.currentTimeMillis() + timeoutMs;
+		for (Map.Entry<String, Future<State>> check : checks.entrySet()) {
+			State state;
+			try {
+				long wait = Math.max(deadline - System.currentTimeMillis(), 0);
+				state = check.getValue().get(wait, TimeUnit.MILLISECONDS);
+			} catch (TimeoutException e) {
+				state = State.TIMED_OUT;
+			} catch (ExecutionException e) {
+				state = State.UNKNOWN;
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				state = State.TIMED_OUT;
+			} catch (RuntimeException e) {
+				//cancelled by shutdown
+				state = State.UNKNOWN;
+			}
+			states.put(check.getKey(), state);
+		}
+		return states;
+	}
+
+	/**
+	 * Discards the cached results so that every path is checked again.
+	 */
+	public static void invalidate() {
+		results.clear();
+	}
+
+	/**
+	 * Adds a listener. Adding a listener again has no effect.
+	 *
+	 * @param listener Listener
+	 */
+	public static void addListener(IPathValidationListener listener) {
+		if (!listeners.contains(listener)) {
+			listeners.add(listener);
+		}
+	}
+
+	/**
+	 * Removes a listener.
+	 *
+	 * @param listener Listener
+	 */
+	public static void removeListener(IPathValidationListener listener) {
+		listeners.remove(listener);
+	}
+
+	/**
+	 * Returns true if the path has been checked recently or is being checked.
+	 *
+	 * @param path Path
+	 * @return boolean
+	 */
+	private static boolean isFresh(String path) {
+		Result result = results.get(path);
+		if (result != null && result.isRecent()) {
+			return true;
+		}
+		synchronized (lock) {
+			return running.containsKey(path);
+		}
+	}
+
+	/**
+	 * Starts checking a path unless it is already being checked.
+	 *
+	 * @param path Path
+	 * @return Future<State> Running check, or TIMED_OUT if every thread is blocked
+	 */
+	private static Future<State> submit(final String path) {
+		synchronized (lock) {
+			Future<State> check = running.get(path);
+			if (check != null) {
+				return check;
+			}
+			if (executor == null) {
+				//no queue, a new thread is started for each check while all threads are busy
+				executor = new ThreadPoolExecutor(0, MAX_THREADS, KEEP_ALIVE_MS, TimeUnit.MILLISECONDS,
+						new SynchronousQueue<Runnable>(),
+						new DaemonThreadFactory());
+				timer = Executors.newSingleThreadScheduledExecutor(
+						new DaemonThreadFactory());
+			}
+			final FutureTask<State> f = new FutureTask<State>(new Callable<State>() {
+				public State call() {
+					State state;
+					try {
+						//may block for a long time on unreachable network paths
+						state = new File(path).exists() ? State.EXISTS : State.MISSING;
+					} catch (SecurityException e) {
+						state = State.MISSING;
+					}
+					done(path, state);
+					return state;
+				}
+			});
+			try {
+				executor.execute(f);
+				running.put(path, f);
+				timer.schedule(new Runnable() {
+					public void run() {
+						timedOut(path, f);
+					}
+				}, TIMEOUT_MS, TimeUnit.MILLISECONDS);
+				return f;
+			} catch (RejectedExecutionException e) {
+				//every thread is blocked by a path that doesn't answer
+			}
+		}
+		return givenUp(path);
+	}
+
+	/**
+	 * Reports a path that can't be checked now as TIMED_OUT.
+	 * It is checked again when the result is no longer recent.
+	 *
+	 * @param path Path
+	 * @return Future<State> TIMED_OUT
+	 */
+	private static Future<State> givenUp(String path) {
+		Result old = results.put(path, new Result(State.TIMED_OUT));
+		if (old == null || old.state != State.TIMED_OUT) {
+			fire(path, State.TIMED_OUT);
+		}
+		FutureTask<State> f = new FutureTask<State>(new Callable<State>() {
+			public State call() {
+				return State.TIMED_OUT;
+			}
+		});
+		f.run();
+		return f;
+	}
+
+	/**
+	 * Stores the result of a finished check and notifies the listeners.
+	 *
+	 * @param path Path
+	 * @param state Result
+	 */
+	private static void done(String path, State state) {
+		Result old;
+		synchronized (lock) {
+			//the check was submitted while the lock was held, so it is in running now
+			running.remove(path);
+			old = results.put(path, new Result(state));
+		}
+		if (old == null || old.state != state) {
+			fire(path, state);
+		}
+	}
+
+	/**
+	 * Reports a check that hasn't answered in time.
+	 *
+	 * @param path Path
+	 * @param check Check that was started
+	 */
+	private static void timedOut(String path, Future<State> check) {
+		Result old;
+		synchronized (lock) {
+			//the check may have answered just now
+			if (running.get(path) != check) {
+				return;
+			}
+			old = results.put(path, new Result(State.TIMED_OUT));
+		}
+		if (old == null || old.state != State.TIMED_OUT) {
+			fire(path, State.TIMED_OUT);
+		}
+	}
+
+	/**
+	 * Notifies the listeners.
+	 *
+	 * @param path Path
+	 * @param state New state
+	 */
+	private static void fire(String path, State state) {
+		for (IPathValidationListener listener : listeners) {
+			try {
+				listener.pathValidated(path, state);
+			} catch (RuntimeException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	/**
+	 * Creates named daemon threads so that a check blocked on an
+	 * unreachable path doesn't keep the JVM from exiting.
+	 */
+	private static final class DaemonThreadFactory implements ThreadFactory {
+
+		private final AtomicInteger count = new AtomicInteger(0);
+
+		public Thread newThread(Runnable r) {
+			Thread t = new Thread(r, Messages.LlvmPathValidator_0 + " #" + this.count.incrementAndGet()); //$NON-NLS-1$
+			t.setDaemon(true);
+			return t;
+		}
+	}
+
+	/**
+	 * State of a path and the time it was found out.
+	 */
+	private static final class Result {
+
+		final State state;
+		final long time;
+
+		Result(State state) {
+			this.state = state;
+			this.time = System.currentTimeMillis();
+		}
+
+		/**
+		 * Returns true if the result can be used without checking again.
+		 *
+		 * @return boolean
+		 */
+		boolean isRecent() {
+			return System.currentTimeMillis() - this.time < CACHE_TTL_MS;
+		}
+	}
+
+}
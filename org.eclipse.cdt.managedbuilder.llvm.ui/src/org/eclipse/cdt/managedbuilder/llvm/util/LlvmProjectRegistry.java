@@ -0,0 +1,251 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2013 Nokia Siemens Networks Oyj, Finland.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *      Nokia Siemens Networks - initial implementation
+ *      Petri Tuononen - Initial implementation
+ *******************************************************************************/
+package org.eclipse.cdt.managedbuilder.llvm.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+import org.eclipse.cdt.core.CProjectNature;
+import org.eclipse.cdt.managedbuilder.core.IConfiguration;
+import org.eclipse.cdt.managedbuilder.core.IManagedBuildInfo;
+import org.eclipse.cdt.managedbuilder.core.IToolChain;
+import org.eclipse.cdt.managedbuilder.core.ManagedBuildManager;
+import org.eclipse.cdt.managedbuilder.llvm.ui.LlvmProjectNature;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResourceDelta;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.Path;
+
+/**
+ * Keeps track of the projects that have the LLVM project nature or
+ * a build configuration that uses an LLVM Toolchain so that workspace-wide
+ * operations don't have to load the build info of every project.
+ *
+ * Projects are classified lazily the first time they are needed and again
+ * after they have been created, opened or their description or .cproject
+ * has changed. Projects without the C nature are never asked for build info.
+ * The classification is saved with the workspace by LlvmSaveParticipant.
+ *
+ */
+public class LlvmProjectRegistry {
+
+	//prefix of every LLVM Toolchain id
+	private static final String TOOLCHAIN_ID_PREFIX = "cdt.managedbuild.toolchain.llvm"; //$NON-NLS-1$
+	//CDT managed build project file
+	private static final IPath CPROJECT = new Path(".cproject"); //$NON-NLS-1$
+
+	//classification by project name, true for LLVM projects
+	private static final Map<String, Boolean> projects = new HashMap<String, Boolean>();
+	//projects that have to be classified again
+	private static final Set<String> stale = new HashSet<String>();
+	//generation of the last invalidation by project name so that
+	//classifications started before it aren't stored
+	private static final Map<String, Long> generations = new HashMap<String, Long>();
+	//source of the generations, incremented by every invalidation
+	private static long generation = 0;
+
+	/**
+	 * Returns the open projects in the workspace that use LLVM.
+	 *
+	 * @return IProject[] LLVM projects
+	 */
+	public static IProject[] getProjects() {
+		List<IProject> llvmProjects = new ArrayList<IProject>();
+		for (IProject proj : LlvmToolOptionPathUtil.getProjectsInWorkspace()) {
+			if (isLlvmProject(proj)) {
+				llvmProjects.add(proj);
+			}
+		}
+		return llvmProjects.toArray(new IProject[llvmProjects.size()]);
+	}
+
+	/**
+	 * Returns true if the project is open and uses LLVM.
+	 *
+	 * @param proj IProject Project
+	 * @return boolean True if LLVM project
+	 */
+	public static boolean isLlvmProject(IProject proj) {
+		if (!proj.isOpen()) {
+			return false;
+		}
+		String name = proj.getName();
+		long started;
+		synchronized (projects) {
+			Boolean llvm = projects.get(name);
+			if (llvm != null && !stale.contains(name)) {
+				return llvm.booleanValue();
+			}
+			started = getGeneration(name);
+		}
+		//classify outside of the lock since loading build info may take time
+		boolean llvm = classify(proj);
+		synchronized (projects) {
+			//an invalidation that arrived while classifying may not be lost,
+			//the project is classified again the next time it is needed
+			if (getGeneration(name) == started) {
+				projects.put(name, Boolean.valueOf(llvm));
+				stale.remove(name);
+			}
+		}
+		return llvm;
+	}
+
+	/**
+	 * Marks a project to be classified again the next time it is needed.
+	 *
+	 * @param proj IProject Project
+	 */
+	public static void invalidate(IProject proj) {
+		synchronized (projects) {
+			markStale(proj.getName());
+		}
+	}
+
+	/**
+	 * Marks a project stale and discards the classifications of it that are
+	 * in progress. Must be called while holding the lock of projects.
+	 *
+	 * @param name Project name
+	 */
+	private static void markStale(String name) {
+		stale.add(name);
+		generations.put(name, Long.valueOf(++generation));
+	}
+
+	/**
+	 * Returns the generation of the last invalidation of a project.
+	 * Must be called while holding the lock of projects.
+	 *
+	 * @param name Project name
+	 * @return long Generation, 0 if the project has never been invalidated
+	 */
+	private static long getGeneration(String name) {
+		Long gen = generations.get(name);
+		return gen == null ? 0 : gen.longValue();
+	}
+
+	/**
+	 * Returns true if the project has the LLVM nature or a build
+	 * configuration that uses an LLVM Toolchain.
+	 *
+	 * @param proj IProject Project
+	 * @return boolean True if LLVM project
+	 */
+	private static boolean classify(IProject proj) {
+		try {
+			if (proj.hasNature(LlvmProjectNature.NATURE_ID)) {
+				return true;
+			}
+			//only C/C++ projects can have LLVM build configurations
+			if (!proj.hasNature(CProjectNature.C_NATURE_ID)) {
+				return false;
+			}
+		} catch (CoreException e) { //project is closed or doesn't exist
+			return false;
+		}
+		IManagedBuildInfo info = null;
+		try {
+			info = ManagedBuildManager.getBuildInfo(proj); //null if doesn't exists
+		} catch (Exception e) { //if not a managed build project
+			return false;
+		}
+		if (info == null || info.getManagedProject() == null) {
+			return false;
+		}
+		for (IConfiguration cf : info.getManagedProject().getConfigurations()) {
+			//check the tool chain and the tool chains it is derived from
+			for (IToolChain tc = cf.getToolChain(); tc != null; tc = tc.getSuperClass()) {
+				if (tc.getId() != null && tc.getId().startsWith(TOOLCHAIN_ID_PREFIX)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Updates the registry according to the project changes of a resource delta.
+	 *
+	 * @param delta IResourceDelta Workspace root delta, may be null
+	 */
+	static void processDelta(IResourceDelta delta) {
+		if (delta == null) {
+			return;
+		}
+		synchronized (projects) {
+			for (IResourceDelta projDelta : delta.getAffectedChildren()) {
+				String name = projDelta.getResource().getName();
+				switch (projDelta.getKind()) {
+				case IResourceDelta.REMOVED:
+					projects.remove(name);
+					stale.remove(name);
+					//a classification of the removed project may not be stored
+					generations.put(name, Long.valueOf(++generation));
+					break;
+				case IResourceDelta.ADDED:
+					markStale(name);
+					break;
+				case IResourceDelta.CHANGED:
+					if ((projDelta.getFlags() & (IResourceDelta.OPEN | IResourceDelta.DESCRIPTION)) != 0
+							|| projDelta.findMember(CPROJECT) != null) {
+						markStale(name);
+					}
+					break;
+				default:
+					break;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Restores the saved classification. Projects that have
+	 * already been classified are not overwritten.
+	 *
+	 * @param props Saved state
+	 */
+	static void restore(Properties props) {
+		synchronized (projects) {
+			for (Map.Entry<Object, Object> entry : props.entrySet()) {
+				String name = (String) entry.getKey();
+				if (!projects.containsKey(name)) {
+					projects.put(name, Boolean.valueOf((String) entry.getValue()));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the classification to be saved.
+	 *
+	 * @return Properties State
+	 */
+	static Properties getState() {
+		Properties props = new Properties();
+		synchronized (projects) {
+			for (Map.Entry<String, Boolean> entry : projects.entrySet()) {
+				if (!stale.contains(entry.getKey())) {
+					props.setProperty(entry.getKey(), entry.getValue().toString());
+				}
+			}
+		}
+		return props;
+	}
+
+}
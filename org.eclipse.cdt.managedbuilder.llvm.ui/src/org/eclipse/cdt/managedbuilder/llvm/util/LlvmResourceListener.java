@@ -11,18 +11,56 @@
  *******************************************************************************/
 package org.eclipse.cdt.managedbuilder.llvm.util;
 
-import org.eclipse.cdt.managedbuilder.llvm.ui.preferences.LlvmPreferenceStore;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
 import org.eclipse.core.resources.IProject;
-import org.eclipse.core.resources.IResource;
 import org.eclipse.core.resources.IResourceChangeEvent;
 import org.eclipse.core.resources.IResourceChangeListener;
-import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.resources.IResourceDelta;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.Path;
 
 /**
- * Implements Resource listener.
+ * Implements Resource listener. The only resource listener of the plug-in.
+ * 
+ * Projects that are added, opened or reconfigured are collected between builds,
+ * and the LLVM values of the preference page are applied to them once in the
+ * PRE_BUILD step of the next build cycle. The output folders of the built projects
+ * are refreshed once in the POST_BUILD step.
  */
 public class LlvmResourceListener implements IResourceChangeListener {
 
+	//event types the listener handles
+	public static final int EVENT_MASK = IResourceChangeEvent.PRE_BUILD
+			| IResourceChangeEvent.POST_BUILD | IResourceChangeEvent.POST_CHANGE;
+
+	//CDT managed build project file
+	private static final IPath CPROJECT = new Path(".cproject"); //$NON-NLS-1$
+
+	//adds the C++ standard library before a build
+	private final PreBuildSetup setup;
+
+	//projects that need the LLVM values at the next build, null for every project
+	private Set<IProject> projectsToSetUp = null;
+
+	/**
+	 * Constructor.
+	 */
+	public LlvmResourceListener() {
+		this(PreBuildSetup.getDefault());
+	}
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param setup PreBuildSetup Setup performed in the PRE_BUILD step
+	 */
+	public LlvmResourceListener(PreBuildSetup setup) {
+		this.setup = setup;
+	}
+
 	/**
 	 * Defines what happens when resources have changed.
 	 * 
@@ -30,39 +68,107 @@ public class LlvmResourceListener implements IResourceChangeListener {
 	 */
 	public void resourceChanged(IResourceChangeEvent event) {
 
-		if (event.getType() == IResourceChangeEvent.POST_BUILD) { //refresh every project after build
-			//get all projects
-			IProject[] projects = LlvmToolOptionPathUtil.getProjectsInWorkspace();
+		if (event.getType() == IResourceChangeEvent.POST_CHANGE) {
+			processDelta(event.getDelta());
+		} else if (event.getType() == IResourceChangeEvent.PRE_BUILD) {
+			preBuild();
+		} else if (event.getType() == IResourceChangeEvent.POST_BUILD) { //refresh the output of the built projects
+			OutputRefresher.refresh(getBuiltProjects(event));
+		} else {
+			return;
+		}
+
+	}
 
-			//refresh the projects
-			for (IProject proj : projects) {
-				try {
-					proj.refreshLocal(IResource.DEPTH_INFINITE, null);
-				} catch (CoreException e) {
-					e.printStackTrace();
+	/**
+	 * Updates the project registry and the source language index and collects
+	 * the projects that need the LLVM values.
+	 * 
+	 * @param delta IResourceDelta Workspace root delta, may be null
+	 */
+	public void processDelta(IResourceDelta delta) {
+		if (delta == null) {
+			return;
+		}
+		LlvmProjectRegistry.processDelta(delta);
+		SourceLanguageIndex.processDelta(delta);
+		Set<IProject> reconfigured = new LinkedHashSet<IProject>();
+		for (IResourceDelta projDelta : delta.getAffectedChildren()) {
+			if (projDelta.getKind() != IResourceDelta.CHANGED
+					|| (projDelta.getFlags() & (IResourceDelta.OPEN | IResourceDelta.DESCRIPTION)) != 0
+					|| projDelta.findMember(CPROJECT) != null) {
+				reconfigured.add((IProject) projDelta.getResource());
+			}
+		}
+		for (IProject proj : reconfigured) {
+			//the build settings of the project may have changed
+			LlvmInvalidationBus.projectChanged(proj);
+		}
+		synchronized (this) {
+			if (this.projectsToSetUp == null) {
+				return;
+			}
+			for (IProject proj : reconfigured) {
+				if (proj.exists()) {
+					this.projectsToSetUp.add(proj);
 				}
 			}
-		} else if (event.getType() == IResourceChangeEvent.PRE_BUILD) {
-			String os = System.getProperty("os.name").toLowerCase(); //$NON-NLS-1$
-			if (os.indexOf("win") >= 0) { //$NON-NLS-1$
-				LlvmPreferenceStore.addMinGWStdLib();
-//				LlvmToolOptionPathUtil.addMissingCppIncludesForMingw(); //TODO: Remove when Scanner Discovery has been fixed
-			} else if (os.indexOf( "nix") >=0 || os.indexOf( "nux") >=0 /*|| os.indexOf( "mac") >=0 */) { //$NON-NLS-1$ //$NON-NLS-2$
-				LlvmPreferenceStore.addStdLibUnix();
+		}
+	}
+
+	/**
+	 * Performs the PRE_BUILD step of a build cycle.
+	 */
+	private void preBuild() {
+		//add the C++ standard library unless already done for the current preferences
+		boolean preferencesChanged = this.setup.runIfNeeded();
+		IProject[] projects;
+		synchronized (this) {
+			if (preferencesChanged) {
+				this.projectsToSetUp = null;
 			}
-			
-			/*
-			 * try to add values (include and library paths and libraries) to
-			 * projects's build configurations to ensure that newly added projects
-			 * have necessary paths.
-			 */
-			LlvmToolOptionPathUtil.addAllIncludesToBuildConf();
-			LlvmToolOptionPathUtil.addAllLibsToBuildConf();
-			LlvmToolOptionPathUtil.addAllLibPathsToBuildConf();
-		} else {
+			projects = this.projectsToSetUp == null ? null
+					: this.projectsToSetUp.toArray(new IProject[this.projectsToSetUp.size()]);
+			this.projectsToSetUp = new LinkedHashSet<IProject>();
+		}
+		if (projects != null && projects.length == 0) {
 			return;
 		}
+		/*
+		 * try to add values (include and library paths and libraries) to
+		 * projects's build configurations to ensure that newly added projects
+		 * have necessary paths. All values are applied in one batch so that
+		 * every project is saved at most once.
+		 */
+		LlvmToolOptionPathUtil.addAllToBuildConf(projects);
+	}
 
+	/**
+	 * Returns the LLVM projects that were built. A project build has the project
+	 * as its source, a workspace build changes the projects in the delta.
+	 * 
+	 * @param event IResourceChangeEvent Build event
+	 * @return Set of built LLVM projects
+	 */
+	private static Set<IProject> getBuiltProjects(IResourceChangeEvent event) {
+		Set<IProject> projects = new LinkedHashSet<IProject>();
+		if (event.getSource() instanceof IProject) {
+			projects.add((IProject) event.getSource());
+		}
+		IResourceDelta delta = event.getDelta();
+		if (delta != null) {
+			for (IResourceDelta projDelta : delta.getAffectedChildren()) {
+				if (projDelta.getResource() instanceof IProject) {
+					projects.add((IProject) projDelta.getResource());
+				}
+			}
+		}
+		for (Iterator<IProject> it = projects.iterator(); it.hasNext();) {
+			if (!LlvmProjectRegistry.isLlvmProject(it.next())) {
+				it.remove();
+			}
+		}
+		return projects;
 	}
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,99 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2013 Nokia Siemens Networks Oyj, Finland.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *      Nokia Siemens Networks - initial implementation
+ *      Petri Tuononen - Initial implementation
+ *******************************************************************************/
+package org.eclipse.cdt.managedbuilder.llvm.util;
+
+import java.util.Properties;
+
+import org.eclipse.cdt.managedbuilder.llvm.ui.LlvmUIPlugin;
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.IResourceChangeListener;
+import org.eclipse.core.resources.ISaveContext;
+import org.eclipse.core.resources.ISaveParticipant;
+import org.eclipse.core.resources.ISavedState;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+
+/**
+ * Saves the state of the project registry and the source language index
+ * with the workspace. The resource changes that happened after the last save
+ * are replayed on start up so that the saved state is still valid even if the
+ * plug-in wasn't active when the changes happened.
+ *
+ */
+public class LlvmSaveParticipant implements ISaveParticipant {
+
+	//file in the plug-in state location where the project registry is saved
+	private static final String REGISTRY_FILE = "llvmProjects.properties"; //$NON-NLS-1$
+	//file in the plug-in state location where the source language index is saved
+	private static final String INDEX_FILE = "sourceLanguages.properties"; //$NON-NLS-1$
+
+	/**
+	 * Restores the saved state and registers the save participant.
+	 * Called when the plug-in is started.
+	 *
+	 * @param listener Receives the resource changes since the last save
+	 */
+	public static void startup(final LlvmResourceListener listener) {
+		try {
+			ISavedState lastState = ResourcesPlugin.getWorkspace().addSaveParticipant(
+					LlvmUIPlugin.PLUGIN_ID, new LlvmSaveParticipant());
+			//the saved state is only valid if the changes since it was saved are known
+			if (lastState == null) {
+				return;
+			}
+			Properties registry = StateFile.load(REGISTRY_FILE);
+			if (registry != null) {
+				LlvmProjectRegistry.restore(registry);
+			}
+			Properties index = StateFile.load(INDEX_FILE);
+			if (index != null) {
+				SourceLanguageIndex.restore(index);
+			}
+			lastState.processResourceChangeEvents(new IResourceChangeListener() {
+				public void resourceChanged(IResourceChangeEvent event) {
+					listener.processDelta(event.getDelta());
+				}
+			});
+		} catch (CoreException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Unregisters the save participant. Called when the plug-in is stopped.
+	 */
+	public static void shutdown() {
+		ResourcesPlugin.getWorkspace().removeSaveParticipant(LlvmUIPlugin.PLUGIN_ID);
+	}
+
+	public void prepareToSave(ISaveContext context) throws CoreException {
+		//nothing to prepare
+	}
+
+	public void saving(ISaveContext context) throws CoreException {
+		if (context.getKind() == ISaveContext.FULL_SAVE) {
+			StateFile.save(REGISTRY_FILE, LlvmProjectRegistry.getState());
+			StateFile.save(INDEX_FILE, SourceLanguageIndex.getState());
+			//receive the changes since this save on next start up
+			context.needDelta();
+		}
+	}
+
+	public void doneSaving(ISaveContext context) {
+		//nothing to clean up
+	}
+
+	public void rollback(ISaveContext context) {
+		//the previous state files are still valid
+	}
+
+}
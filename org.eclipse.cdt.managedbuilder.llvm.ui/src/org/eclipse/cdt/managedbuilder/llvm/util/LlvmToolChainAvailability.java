@@ -0,0 +1,341 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2013 Nokia Siemens Networks Oyj, Finland.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *      Nokia Siemens Networks - initial implementation
+ *      Petri Tuononen - Initial implementation
+ *******************************************************************************/
+package org.eclipse.cdt.managedbuilder.llvm.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.eclipse.cdt.managedbuilder.core.IToolChain;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+
+/**
+ * Knows which LLVM tool-chain variants can be used with the installed LLVM
+ * versions. The answer is kept in memory so that tool-chain support can be asked
+ * repeatedly (e.g. by the New Project wizard) without searching the file system.
+ *
+ * The answer is computed in the background when the plug-in is started and
+ * when the LLVM preferences change. Until then the answer saved in the plug-in
+ * state location on the previous run is used. If there is none every
+ * tool-chain is reported as supported until the answer is known, so that
+ * the caller never waits for the installations to be searched.
+ *
+ */
+public class LlvmToolChainAvailability {
+
+	//prefix of the ids of the LLVM tool-chains
+	private static final String TOOLCHAIN_ID_PREFIX = "cdt.managedbuild.toolchain.llvm."; //$NON-NLS-1$
+	//file in the plug-in state location where the last answer is saved
+	private static final String STATE_FILE = "llvmToolChains.properties"; //$NON-NLS-1$
+	//saved in place of an unknown version
+	private static final String UNKNOWN_VERSION = "?"; //$NON-NLS-1$
+
+	/**
+	 * LLVM tool-chain variants. A variant is available if an installation
+	 * contains any of its tools. Every installation has the archiver and
+	 * the assembler of the base tool-chain.
+	 */
+	public enum Variant {
+		BASE(new String[] {"base"}), //$NON-NLS-1$
+		WITH_LINKER(new String[] {"with.linker."}, //$NON-NLS-1$
+				LlvmInstall.LLVM_LD, LlvmInstall.LLVM_LINK),
+		CLANG(new String[] {"clang."}, //$NON-NLS-1$
+				LlvmInstall.CLANG),
+		GNU(new String[] {"gnu."}, //$NON-NLS-1$
+				LlvmInstall.LLVM_GCC),
+		STATIC_COMPILER(new String[] {"static.compiler.", "with.static.compiler."}, //$NON-NLS-1$ //$NON-NLS-2$
+				LlvmInstall.LLC),
+		JIT(new String[] {"jit."}, //$NON-NLS-1$
+				LlvmInstall.LLI);
+
+		//tool-chain ids of the variant without TOOLCHAIN_ID_PREFIX
+		private final String[] idPrefixes;
+		private final String[] tools;
+
+		private Variant(String[] idPrefixes, String... tools) {
+			this.idPrefixes = idPrefixes;
+			this.tools = tools;
+		}
+
+		/**
+		 * Returns true if the installation can be used with this variant.
+		 *
+		 * @param install Installation
+		 * @return boolean
+		 */
+		boolean isProvidedBy(LlvmInstall install) {
+			if (this.tools.length == 0) {
+				return true;
+			}
+			for (String tool : this.tools) {
+				if (install.hasTool(tool)) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		/**
+		 * Returns true if the tool-chain id belongs to this variant.
+		 *
+		 * @param id Tool-chain id without TOOLCHAIN_ID_PREFIX
+		 * @return boolean
+		 */
+		boolean matches(String id) {
+			for (String prefix : this.idPrefixes) {
+				if (id.startsWith(prefix)) {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+
+	//the current answer, null until known
+	private static final AtomicReference<Availability> availability = new AtomicReference<Availability>();
+
+	//computes the answer in the background
+	private static final Job refreshJob = new Job(Messages.LlvmToolChainAvailability_0) {
+		@Override
+		protected IStatus run(IProgressMonitor monitor) {
+			refreshNow();
+			return Status.OK_STATUS;
+		}
+	};
+
+	static {
+		refreshJob.setSystem(true);
+		refreshJob.setPriority(Job.SHORT);
+	}
+
+	/**
+	 * Uses the answer saved on the previous run and starts computing
+	 * the current answer. Called when the plug-in is started.
+	 */
+	public static void startup() {
+		Properties saved = StateFile.load(STATE_FILE);
+		if (saved != null) {
+			availability.compareAndSet(null, Availability.restore(saved));
+		}
+		refresh();
+	}
+
+	/**
+	 * Stops computing the answer. Called when the plug-in is stopped.
+	 */
+	public static void shutdown() {
+		refreshJob.cancel();
+	}
+
+	/**
+	 * Computes the answer again in the background. The current answer is used
+	 * until then. Requests made while computing run the computation once more.
+	 */
+	public static void refresh() {
+		refreshJob.schedule();
+	}
+
+	/**
+	 * Returns true if the tool-chain can be used with an installed LLVM version.
+	 *
+	 * @param toolChain IToolChain Tool-chain or one of its descendants
+	 * @return boolean
+	 */
+	public static boolean isSupported(IToolChain toolChain) {
+		return isSupported(getVariant(toolChain));
+	}
+
+	/**
+	 * Returns true if the variant can be used with an installed LLVM version.
+	 *
+	 * @param variant Variant
+	 * @return boolean
+	 */
+	public static boolean isSupported(Variant variant) {
+		Availability current = getAvailability();
+		return current == null || !current.versions.get(variant).isEmpty();
+	}
+
+	/**
+	 * Returns true if the variant can be used with an installed LLVM version
+	 * that is the given version or one of its minor versions,
+	 * e.g. "3" matches "3.2" and "3.2svn" but not "31.0".
+	 *
+	 * @param variant Variant
+	 * @param version Version or its leading part
+	 * @return boolean
+	 */
+	public static boolean isSupported(Variant variant, String version) {
+		Availability current = getAvailability();
+		if (current == null) {
+			return true;
+		}
+		for (String v : current.versions.get(variant)) {
+			if (v != null && (v.equals(version) || v.startsWith(version)
+					&& !Character.isDigit(v.charAt(version.length())))) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the installed LLVM versions that can be used with the variant.
+	 *
+	 * @param variant Variant
+	 * @return List of versions, null for an unknown version, empty if the answer isn't known yet
+	 */
+	public static List<String> getVersions(Variant variant) {
+		Availability current = getAvailability();
+		return current != null ? current.versions.get(variant) : Collections.<String>emptyList();
+	}
+
+	/**
+	 * Returns the variant of a tool-chain. The tool-chain and its super classes
+	 * are searched for an LLVM tool-chain id.
+	 *
+	 * @param toolChain IToolChain Tool-chain or null
+	 * @return Variant Variant, BASE if the tool-chain isn't a known LLVM tool-chain
+	 */
+	public static Variant getVariant(IToolChain toolChain) {
+		for (IToolChain tc = toolChain; tc != null; tc = tc.getSuperClass()) {
+			String id = tc.getId();
+			if (id == null || !id.startsWith(TOOLCHAIN_ID_PREFIX)) {
+				continue;
+			}
+			id = id.substring(TOOLCHAIN_ID_PREFIX.length());
+			for (Variant variant : Variant.values()) {
+				if (variant.matches(id)) {
+					return variant;
+				}
+			}
+		}
+		return Variant.BASE;
+	}
+
+	/**
+	 * Returns the current answer. Never searches the installations.
+	 *
+	 * @return Availability Answer or null if it isn't known yet
+	 */
+	private static Availability getAvailability() {
+		Availability current = availability.get();
+		if (current == null && refreshJob.getState() == Job.NONE) {
+			//e.g. asked before the plug-in was started
+			refresh();
+		}
+		return current;
+	}
+
+	/**
+	 * Computes the answer from the installations and saves it if it changed.
+	 *
+	 * @return Availability Answer
+	 */
+	private static Availability refreshNow() {
+		Availability result = Availability.compute(LlvmInstallRegistry.getInstalls());
+		Availability previous = availability.getAndSet(result);
+		if (!result.equals(previous)) {
+			StateFile.save(STATE_FILE, result.getState());
+		}
+		return result;
+	}
+
+	/**
+	 * The installed versions that can be used with each variant.
+	 */
+	private static final class Availability {
+
+		final Map<Variant, List<String>> versions;
+
+		private Availability(Map<Variant, List<String>> versions) {
+			this.versions = versions;
+		}
+
+		/**
+		 * Computes the availability from the installations.
+		 *
+		 * @param installs Installations
+		 * @return Availability Availability
+		 */
+		static Availability compute(List<LlvmInstall> installs) {
+			Map<Variant, List<String>> versions = new EnumMap<Variant, List<String>>(Variant.class);
+			for (Variant variant : Variant.values()) {
+				List<String> list = new ArrayList<String>();
+				for (LlvmInstall install : installs) {
+					if (variant.isProvidedBy(install) && !list.contains(install.getVersion())) {
+						list.add(install.getVersion());
+					}
+				}
+				versions.put(variant, Collections.unmodifiableList(list));
+			}
+			return new Availability(versions);
+		}
+
+		/**
+		 * Restores saved availability.
+		 *
+		 * @param props Saved availability
+		 * @return Availability Availability
+		 */
+		static Availability restore(Properties props) {
+			Map<Variant, List<String>> versions = new EnumMap<Variant, List<String>>(Variant.class);
+			for (Variant variant : Variant.values()) {
+				List<String> list = new ArrayList<String>();
+				String value = props.getProperty(variant.name(), ""); //$NON-NLS-1$
+				for (String version : value.split(",")) { //$NON-NLS-1$
+					if (version.length() != 0) {
+						list.add(UNKNOWN_VERSION.equals(version) ? null : version);
+					}
+				}
+				versions.put(variant, Collections.unmodifiableList(list));
+			}
+			return new Availability(versions);
+		}
+
+		/**
+		 * Returns the availability to be saved.
+		 *
+		 * @return Properties Availability
+		 */
+		Properties getState() {
+			Properties props = new Properties();
+			for (Map.Entry<Variant, List<String>> entry : this.versions.entrySet()) {
+				StringBuffer sB = new StringBuffer();
+				for (String version : entry.getValue()) {
+					sB.append(version != null ? version : UNKNOWN_VERSION);
+					sB.append(',');
+				}
+				props.setProperty(entry.getKey().name(), sB.toString());
+			}
+			return props;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof Availability && ((Availability) obj).versions.equals(this.versions);
+		}
+
+		@Override
+		public int hashCode() {
+			return this.versions.hashCode();
+		}
+	}
+
+}
@@ -0,0 +1,340 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2013 Nokia Siemens Networks Oyj, Finland.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *      Nokia Siemens Networks - initial implementation
+ *      Petri Tuononen - Initial implementation
+ *******************************************************************************/
+package org.eclipse.cdt.managedbuilder.llvm.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.cdt.managedbuilder.llvm.ui.preferences.LlvmProjectPreferences;
+import org.eclipse.core.resources.IProject;
+
+/**
+ * Collects include path, library and library search path additions and removals
+ * so that they can be applied to the LLVM Tool options of every project in one
+ * pass over the workspace. Each project that is touched by the batch is saved
+ * only once regardless of how many values the batch contains.
+ *
+ */
+public class LlvmToolOptionBatch {
+
+	//maximum time to wait for the paths of a batch to be checked
+	private static final long PATH_CHECK_TIMEOUT_MS = 5000;
+
+	//operations in the order they were added
+	private final List<Operation> operations = new ArrayList<Operation>();
+	//true if the batch should only be applied to C++ projects
+	private boolean cppProjectsOnly = false;
+	//projects the batch is applied to, null for every LLVM project
+	private IProject[] projects = null;
+	//true if the values added by each project should be added too
+	private boolean projectValues = false;
+
+	/**
+	 * Adds an include path to the batch.
+	 *
+	 * @param includePath Include path for LLVM front-end's Include Option
+	 */
+	public void addIncludePath(String includePath) {
+		addOperation(includePath, LlvmToolOptionPathUtil.INCLUDE, true);
+	}
+
+	/**
+	 * Adds an include path removal to the batch.
+	 *
+	 * @param includePath Include path for LLVM front-end's Include Option
+	 */
+	public void removeIncludePath(String includePath) {
+		addOperation(includePath, LlvmToolOptionPathUtil.INCLUDE, false);
+	}
+
+	/**
+	 * Adds a library to the batch.
+	 *
+	 * @param lib Library name for the LLVM linker's Libraries Option
+	 */
+	public void addLibrary(String lib) {
+		addOperation(lib, LlvmToolOptionPathUtil.LIB, true);
+	}
+
+	/**
+	 * Adds a library removal to the batch.
+	 *
+	 * @param lib Library name for the LLVM linker's Libraries Option
+	 */
+	public void removeLibrary(String lib) {
+		addOperation(lib, LlvmToolOptionPathUtil.LIB, false);
+	}
+
+	/**
+	 * Adds a library search path to the batch.
+	 *
+	 * @param libDir Library search path directory for LLVM linker's Library search path Option
+	 */
+	public void addLibraryPath(String libDir) {
+		addOperation(libDir, LlvmToolOptionPathUtil.LIB_PATH, true);
+	}
+
+	/**
+	 * Adds a library search path removal to the batch.
+	 *
+	 * @param libDir Library search path directory for LLVM linker's Library search path Option
+	 */
+	public void removeLibraryPath(String libDir) {
+		addOperation(libDir, LlvmToolOptionPathUtil.LIB_PATH, false);
+	}
+
+	/**
+	 * Adds several values of the same Tool option type to the batch.
+	 *
+	 * @param values Paths or file names
+	 * @param var Tool option's value
+	 * @param add True to add the values, false to remove them
+	 */
+	public void addAll(String[] values, int var, boolean add) {
+		for (String value : values) {
+			addOperation(value, var, add);
+		}
+	}
+
+	/**
+	 * Restricts the batch to projects that contain C++ source files.
+	 *
+	 * @param cppOnly True if only C++ projects should be modified
+	 */
+	public void setCppProjectsOnly(boolean cppOnly) {
+		this.cppProjectsOnly = cppOnly;
+	}
+
+	/**
+	 * Returns true if the batch is restricted to C++ projects.
+	 *
+	 * @return boolean
+	 */
+	public boolean isCppProjectsOnly() {
+		return this.cppProjectsOnly;
+	}
+
+	/**
+	 * Restricts the batch to the given projects. Projects that don't use LLVM are ignored.
+	 *
+	 * @param projects Projects or null for every LLVM project in the workspace
+	 */
+	public void setProjects(IProject[] projects) {
+		this.projects = projects;
+	}
+
+	/**
+	 * Returns the projects the batch is restricted to.
+	 *
+	 * @return IProject[] Projects or null for every LLVM project in the workspace
+	 */
+	public IProject[] getProjects() {
+		return this.projects;
+	}
+
+	/**
+	 * Makes the batch also add the values each project adds to the
+	 * LLVM preference page values.
+	 *
+	 * @param projectValues True to add the project specific values
+	 * @see LlvmProjectPreferences
+	 */
+	public void setIncludeProjectValues(boolean projectValues) {
+		this.projectValues = projectValues;
+	}
+
+	/**
+	 * Returns true if the batch doesn't contain any operations.
+	 *
+	 * @return boolean
+	 */
+	public boolean isEmpty() {
+		return this.operations.isEmpty();
+	}
+
+	/**
+	 * Applies the batch to every project in the workspace that uses LLVM Toolchain.
+	 * 
+	 * @return ToolOptionChangeSummary Values that were actually added or removed
+	 */
+	public ToolOptionChangeSummary apply() {
+		return LlvmToolOptionPathUtil.applyBatch(this);
+	}
+
+	/**
+	 * Applies the batch in the background. Returns immediately.
+	 * 
+	 * @see LlvmToolOptionJob
+	 */
+	public void schedule() {
+		LlvmToolOptionJob.enqueue(this);
+	}
+
+	/**
+	 * Returns the batch as it applies to a project. Additions of values the
+	 * project excludes and removals of values the project adds itself are dropped.
+	 *
+	 * @param proj IProject Project
+	 * @return LlvmToolOptionBatch This batch if the project doesn't have its own values
+	 */
+	LlvmToolOptionBatch forProject(IProject proj) {
+		if (!LlvmProjectPreferences.hasOverrides(proj)) {
+			return this;
+		}
+		LlvmToolOptionBatch projectBatch = new LlvmToolOptionBatch();
+		projectBatch.cppProjectsOnly = this.cppProjectsOnly;
+		projectBatch.projects = new IProject[] {proj};
+		//the values of the project by preference name, resolved once for all operations
+		Map<String, PathList> added = new HashMap<String, PathList>(4);
+		Map<String, PathList> excluded = new HashMap<String, PathList>(4);
+		for (String name : LlvmProjectPreferences.getListNames()) {
+			added.put(name, LlvmProjectPreferences.getAdded(proj, name));
+			excluded.put(name, LlvmProjectPreferences.getExcluded(proj, name));
+		}
+		for (Operation op : this.operations) {
+			String name = LlvmProjectPreferences.getPreferenceName(op.getVar());
+			PathList overridden = op.isAdd() ? excluded.get(name) : added.get(name);
+			if (overridden == null || !overridden.contains(op.getValue())) {
+				projectBatch.operations.add(op);
+			}
+		}
+		if (this.projectValues) {
+			for (String name : LlvmProjectPreferences.getListNames()) {
+				projectBatch.addAll(added.get(name).toArray(),
+						LlvmProjectPreferences.getToolOptionType(name), true);
+			}
+			//the paths added by the project haven't been checked yet
+			return projectBatch.withoutMissingPaths();
+		}
+		return projectBatch;
+	}
+
+	/**
+	 * Returns the operations of the batch.
+	 *
+	 * @return List of operations
+	 */
+	List<Operation> getOperations() {
+		return Collections.unmodifiableList(this.operations);
+	}
+
+	/**
+	 * Returns the operations of one Tool option type in the order they were added.
+	 *
+	 * @param var Tool option's value
+	 * @return List of operations
+	 */
+	List<Operation> getOperations(int var) {
+		List<Operation> ops = new ArrayList<Operation>();
+		for (Operation op : this.operations) {
+			if (op.getVar() == var) {
+				ops.add(op);
+			}
+		}
+		return ops;
+	}
+
+	/**
+	 * Returns the batch without the additions of include and library search paths
+	 * that don't exist. Removals are always kept. The paths are checked in parallel
+	 * when the batch is applied, so that adding values never waits for the file
+	 * system. Paths whose check doesn't answer in time (e.g. unreachable network
+	 * paths) are kept.
+	 *
+	 * @return LlvmToolOptionBatch This batch if every path exists
+	 * @see LlvmPathValidator
+	 */
+	LlvmToolOptionBatch withoutMissingPaths() {
+		List<String> paths = new ArrayList<String>();
+		for (Operation op : this.operations) {
+			if (isPathAddition(op)) {
+				paths.add(op.getValue());
+			}
+		}
+		if (paths.isEmpty()) {
+			return this;
+		}
+		Map<String, LlvmPathValidator.State> states =
+			LlvmPathValidator.checkAll(paths.toArray(new String[paths.size()]), PATH_CHECK_TIMEOUT_MS);
+		if (!states.containsValue(LlvmPathValidator.State.MISSING)) {
+			return this;
+		}
+		LlvmToolOptionBatch existing = new LlvmToolOptionBatch();
+		existing.cppProjectsOnly = this.cppProjectsOnly;
+		existing.projects = this.projects;
+		existing.projectValues = this.projectValues;
+		for (Operation op : this.operations) {
+			if (!isPathAddition(op) || states.get(op.getValue()) != LlvmPathValidator.State.MISSING) {
+				existing.operations.add(op);
+			}
+		}
+		return existing;
+	}
+
+	/**
+	 * Returns true if the operation adds a path. A path that was removed
+	 * from the file system must still be removable from the Tool options.
+	 *
+	 * @param op Operation
+	 * @return boolean
+	 */
+	private static boolean isPathAddition(Operation op) {
+		return op.isAdd() && op.getVar() != LlvmToolOptionPathUtil.LIB;
+	}
+
+	/**
+	 * Adds a new operation to the batch if the value is valid.
+	 * Paths that don't exist are dropped when the batch is applied.
+	 *
+	 * @param value Path or file name
+	 * @param var Tool option's value
+	 * @param add True to add the value, false to remove it
+	 */
+	private void addOperation(String value, int var, boolean add) {
+		//ignore empty values
+		if (value != null && value.length()>0) {
+			this.operations.add(new Operation(value, var, add));
+		}
+	}
+
+	/**
+	 * A single addition or removal of a Tool option value.
+	 */
+	static class Operation {
+
+		private final String value;
+		private final int var;
+		private final boolean add;
+
+		Operation(String value, int var, boolean add) {
+			this.value = value;
+			this.var = var;
+			this.add = add;
+		}
+
+		String getValue() {
+			return this.value;
+		}
+
+		int getVar() {
+			return this.var;
+		}
+
+		boolean isAdd() {
+			return this.add;
+		}
+	}
+
+}
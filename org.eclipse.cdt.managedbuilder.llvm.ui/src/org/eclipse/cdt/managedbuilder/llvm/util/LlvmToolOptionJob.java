@@ -0,0 +1,100 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2013 Nokia Siemens Networks Oyj, Finland.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *      Nokia Siemens Networks - initial implementation
+ *      Petri Tuononen - Initial implementation
+ *******************************************************************************/
+package org.eclipse.cdt.managedbuilder.llvm.util;
+
+import java.util.LinkedList;
+
+import org.eclipse.cdt.managedbuilder.llvm.ui.LlvmUIPlugin;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.MultiStatus;
+import org.eclipse.core.runtime.SubMonitor;
+import org.eclipse.core.runtime.jobs.Job;
+
+/**
+ * Background job that applies Tool option batches to the projects in the workspace.
+ * Batches are queued and applied one after another in the order they were scheduled
+ * so that e.g. adding and then removing the same path gives the expected result.
+ * Each project is locked with its own scheduling rule while it is being modified.
+ *
+ */
+public class LlvmToolOptionJob extends Job {
+
+	//job family used to find and join pending propagation jobs
+	public static final Object FAMILY = LlvmToolOptionJob.class;
+
+	//the only instance of the job
+	private static final LlvmToolOptionJob job = new LlvmToolOptionJob();
+
+	//batches waiting to be applied
+	private final LinkedList<LlvmToolOptionBatch> queue = new LinkedList<LlvmToolOptionBatch>();
+
+	/**
+	 * Constructor.
+	 */
+	private LlvmToolOptionJob() {
+		super(Messages.LlvmToolOptionJob_0);
+		setPriority(Job.LONG);
+	}
+
+	/**
+	 * Queues a batch to be applied in the background.
+	 *
+	 * @param batch Tool option operations to apply
+	 */
+	public static void enqueue(LlvmToolOptionBatch batch) {
+		if (batch.isEmpty()) {
+			return;
+		}
+		synchronized (job.queue) {
+			job.queue.add(batch);
+		}
+		job.schedule();
+	}
+
+	/**
+	 * Applies all queued batches. Cancelling the job discards the batches
+	 * that haven't been applied yet.
+	 *
+	 * @param monitor Progress monitor
+	 * @return IStatus Result of every modified or failed project
+	 */
+	@Override
+	protected IStatus run(IProgressMonitor monitor) {
+		SubMonitor progress = SubMonitor.convert(monitor);
+		MultiStatus result = new MultiStatus(LlvmUIPlugin.PLUGIN_ID, IStatus.OK, getName(), null);
+		while (true) {
+			LlvmToolOptionBatch batch;
+			synchronized (this.queue) {
+				if (this.queue.isEmpty()) {
+					return result;
+				}
+				progress.setWorkRemaining(this.queue.size());
+				batch = this.queue.removeFirst();
+			}
+			IStatus status = LlvmToolOptionPathUtil.applyBatch(batch, progress.newChild(1));
+			if (status.getSeverity() == IStatus.CANCEL) {
+				synchronized (this.queue) {
+					this.queue.clear();
+				}
+				return status;
+			}
+			result.merge(status);
+		}
+	}
+
+	@Override
+	public boolean belongsTo(Object family) {
+		return FAMILY == family;
+	}
+
+}
@@ -13,8 +13,11 @@ package org.eclipse.cdt.managedbuilder.llvm.util;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
+import org.eclipse.cdt.core.CCorePlugin;
+import org.eclipse.cdt.core.cdtvariables.CdtVariableException;
 import org.eclipse.cdt.core.model.CoreModel;
 import org.eclipse.cdt.core.resources.RefreshScopeManager;
 import org.eclipse.cdt.core.settings.model.ICProjectDescription;
@@ -28,14 +31,21 @@ import org.eclipse.cdt.managedbuilder.core.ManagedBuildManager;
 import org.eclipse.cdt.managedbuilder.envvar.IBuildEnvironmentVariable;
 import org.eclipse.cdt.managedbuilder.envvar.IConfigurationEnvironmentVariableSupplier;
 import org.eclipse.cdt.managedbuilder.gnu.mingw.MingwEnvironmentVariableSupplier;
-import org.eclipse.cdt.managedbuilder.llvm.ui.LlvmEnvironmentVariableSupplier;
+import org.eclipse.cdt.managedbuilder.llvm.ui.LlvmUIPlugin;
 import org.eclipse.cdt.managedbuilder.llvm.ui.preferences.LlvmPreferenceStore;
+import org.eclipse.core.resources.IContainer;
+import org.eclipse.core.resources.IFolder;
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.IWorkspace;
 import org.eclipse.core.resources.IWorkspaceRunnable;
 import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.core.runtime.Status;
 
 /**
  * The main purpose of this class is to add include paths and libraries and library search paths
@@ -59,9 +69,10 @@ public class LlvmToolOptionPathUtil {
 	 * in the workspace that uses LLVM Toolchain and for for every build configuration. 
 	 * 
 	 * @param includePath Include path for LLVM front-end's Include Option 
+	 * @return ToolOptionChangeSummary Values that were actually added or removed
 	 */
-	public static void addLlvmIncludePath(String includePath) {
-		addPathToToolOption(includePath, INCLUDE);
+	public static ToolOptionChangeSummary addLlvmIncludePath(String includePath) {
+		return addPathToToolOption(includePath, INCLUDE);
 	}
 
 	/**
@@ -69,9 +80,10 @@ public class LlvmToolOptionPathUtil {
 	 * in the workspace that uses LLVM Toolchain and for for every build configuration. 
 	 * 
 	 * @param includePath Include path for LLVM front-end's Include Option 
+	 * @return ToolOptionChangeSummary Values that were actually added or removed
 	 */
-	public static void removeLlvmIncludePath(String includePath) {
-		removePathFromToolOption(includePath, INCLUDE);
+	public static ToolOptionChangeSummary removeLlvmIncludePath(String includePath) {
+		return removePathFromToolOption(includePath, INCLUDE);
 	}
 
 	/**
@@ -79,9 +91,10 @@ public class LlvmToolOptionPathUtil {
 	 * in the workspace that use LLVM Toolchain and for for every build configuration.
 	 * 
 	 * @param lib Library name for the LLVM linker's Libraries Option
+	 * @return ToolOptionChangeSummary Values that were actually added or removed
 	 */
-	public static void addLlvmLib(String lib) {
-		addPathToToolOption(lib, LIB);
+	public static ToolOptionChangeSummary addLlvmLib(String lib) {
+		return addPathToToolOption(lib, LIB);
 	}
 
 	/**
@@ -89,9 +102,10 @@ public class LlvmToolOptionPathUtil {
 	 * in the workspace that use LLVM Toolchain and for for every build configuration.
 	 * 
 	 * @param lib Library name for the LLVM linker's Libraries Option
+	 * @return ToolOptionChangeSummary Values that were actually added or removed
 	 */
-	public static void removeLlvmLib(String lib) {
-		removePathFromToolOption(lib, LIB);
+	public static ToolOptionChangeSummary removeLlvmLib(String lib) {
+		return removePathFromToolOption(lib, LIB);
 	}
 
 	/**
@@ -100,9 +114,10 @@ public class LlvmToolOptionPathUtil {
 	 * build configuration.
 	 * 
 	 * @param libDir Library search path directory for LLVM linker's Library search path Option
+	 * @return ToolOptionChangeSummary Values that were actually added or removed
 	 */
-	public static void addLlvmLibraryPath(String libDir) {
-		addPathToToolOption(libDir, LIB_PATH);
+	public static ToolOptionChangeSummary addLlvmLibraryPath(String libDir) {
+		return addPathToToolOption(libDir, LIB_PATH);
 	}
 
 	/**
@@ -111,9 +126,10 @@ public class LlvmToolOptionPathUtil {
 	 * build configuration.
 	 * 
 	 * @param libDir Library search path directory for LLVM linker's Library search path Option
+	 * @return ToolOptionChangeSummary Values that were actually added or removed
 	 */	
-	public static void removeLlvmLibraryPath(String libDir) {
-		removePathFromToolOption(libDir, LIB_PATH);
+	public static ToolOptionChangeSummary removeLlvmLibraryPath(String libDir) {
+		return removePathFromToolOption(libDir, LIB_PATH);
 	}
 
 	/**
@@ -121,173 +137,171 @@ public class LlvmToolOptionPathUtil {
 	 * 
 	 * @param path Path to add to Tool option
 	 * @param var Tool option's value
+	 * @return ToolOptionChangeSummary Values that were actually added
 	 */
-	private static void addPathToToolOption(String path, int var) {
-		//check if the given path exists
-		if (path.length()>0 && (pathExists(path) || var==LIB)) {
-			boolean success = false;
-			//get all projects in the workspace
-			IProject[] projects = getProjectsInWorkspace();
-			IConfiguration[] configs;
-			for (IProject proj : projects) {
-				
-				//get all build configurations of the IProject
-				configs = getAllBuildConfigs(proj);
-				//if build configurations found
-				if (configs.length>0) {
-					for (IConfiguration cf : configs) {
-						//Add path for the Tool's option
-						if (addPathToSelectedToolOptionBuildConf(cf, path, var)) {
-							success = true;
-						} else {
-							success = false;
-						}
-					}
-					//if the path was added successfully
-					if (success) {
-						//save project build info
-						ManagedBuildManager.saveBuildInfo(proj, true);					
-					}
-				}
-			}			
-		}
+	private static ToolOptionChangeSummary addPathToToolOption(String path, int var) {
+		LlvmToolOptionBatch batch = new LlvmToolOptionBatch();
+		batch.addAll(new String[] {path}, var, true);
+		return applyBatch(batch);
 	}
 
 	/**
-	 * Adds a path to Tool option. Only for C++ projects.
+	 * Removes a path from Tool option.
 	 * 
-	 * @param path Path to add to Tool option
+	 * @param path Path to remove from Tool option
 	 * @param var Tool option's value
+	 * @return ToolOptionChangeSummary Values that were actually removed
 	 */
-	private static void addPathToToolOptionCppProjects(String path, int var) {
-		//check if the given path exists
-		if (path.length()>0 && (pathExists(path) || var==LIB)) {
-			boolean success = false;
-			//get all projects in the workspace
-			IProject[] projects = getProjectsInWorkspace();
-			IConfiguration[] configs;
-			String projectPath = null;
-			for (IProject proj : projects) {
-				projectPath = proj.getLocation().toOSString();
-				if (projectPath!=null) {
-					//only apply to C++ projects
-					if (FileUtil.containsCppFile(new File(projectPath))) {
-						//get all build configurations of the IProject
-						configs = getAllBuildConfigs(proj);
-						//if build configurations found
-						if (configs.length>0) {
-							for (IConfiguration cf : configs) {
-								//Add path for the Tool's option
-								if (addPathToSelectedToolOptionBuildConf(cf, path, var)) {
-									success = true;
-								} else {
-									success = false;
-								}
-							}
-							//if the path was added successfully
-							if (success) {
-								//save project build info
-								ManagedBuildManager.saveBuildInfo(proj, true);		
-								ICProjectDescription projectDescription = CoreModel.getDefault().getProjectDescription(proj);
-								try {
-									CoreModel.getDefault().setProjectDescription(proj, projectDescription);
-								} catch (CoreException e) {
-									e.printStackTrace();
-								}
-								//use refresh scope manager to refresh
-						  		RefreshScopeManager manager = RefreshScopeManager.getInstance();
-						  		IWorkspaceRunnable runnable = manager.getRefreshRunnable(proj);
-						  		try {
-									ResourcesPlugin.getWorkspace().run(runnable, null, IWorkspace.AVOID_UPDATE, new NullProgressMonitor());
-								} catch (CoreException e) {
-									e.printStackTrace();
-								}
-						  		//rebuilt the project index
-								ProjectIndex.rebuiltIndex(proj);
-							}
-						}
-					}
-				}
-			}			
+	private static ToolOptionChangeSummary removePathFromToolOption(String path, int var) {
+		LlvmToolOptionBatch batch = new LlvmToolOptionBatch();
+		batch.addAll(new String[] {path}, var, false);
+		return applyBatch(batch);
+	}
+
+	/**
+	 * Applies all operations of the batch to every project in the workspace
+	 * that uses LLVM Toolchain and for every build configuration.
+	 * Every project that was modified is saved exactly once.
+	 * 
+	 * @param batch Tool option operations to apply
+	 * @return ToolOptionChangeSummary Values that were actually added or removed
+	 */
+	public static ToolOptionChangeSummary applyBatch(LlvmToolOptionBatch batch) {
+		ToolOptionChangeSummary summary = new ToolOptionChangeSummary();
+		IStatus status = applyBatch(batch, summary, new NullProgressMonitor());
+		if (status.matches(IStatus.ERROR) && LlvmUIPlugin.getDefault() != null) {
+			LlvmUIPlugin.getDefault().log(status);
 		}
+		return summary;
 	}
-	
+
 	/**
-	 * Removes a path from Tool option.
+	 * Applies all operations of the batch to every project in the workspace
+	 * that uses LLVM Toolchain and for every build configuration.
+	 * Projects are processed one after another, each under its own scheduling rule,
+	 * and saved at most once. The operation can be cancelled.
 	 * 
-	 * @param path Path to remove from Tool option
-	 * @param var Tool option's value
+	 * @param batch Tool option operations to apply
+	 * @param monitor Progress monitor
+	 * @return IStatus Result of every modified or failed project
+	 */
+	public static IStatus applyBatch(LlvmToolOptionBatch batch, IProgressMonitor monitor) {
+		return applyBatch(batch, new ToolOptionChangeSummary(), monitor);
+	}
+
+	/**
+	 * Applies all operations of the batch to every project in the workspace
+	 * that uses LLVM Toolchain and for every build configuration.
+	 * Option values are only set if they differ from the existing values and
+	 * projects are only saved if at least one build configuration changed.
+	 * 
+	 * @param batch Tool option operations to apply
+	 * @param summary Receives the values that were actually added or removed
+	 * @param monitor Progress monitor
+	 * @return IStatus Result of every modified or failed project
 	 */
-	private static void removePathFromToolOption(String path, int var) {
-		//check if the given path exists
-		if (path.length()>0 && pathExists(path) || var==LIB) {
-			boolean success = false;
-			//get all projects in the workspace
-			IProject[] projects = getProjectsInWorkspace();
-			IConfiguration[] configs;
-			for (IProject proj : projects) {
-				//get all build configurations of the IProject
-				configs = getAllBuildConfigs(proj);
-				//if build configurations found
-				if (configs.length>0) {
-					for (IConfiguration cf : configs) {
-						//remove a path from the Tool's option
-						if (removePathFromSelectedToolOptionBuildConf(cf, path, var)) {
-							success = true;
-						} else {
-							success = false;
+	public static IStatus applyBatch(LlvmToolOptionBatch batch, final ToolOptionChangeSummary summary,
+			IProgressMonitor monitor) {
+		//drop the paths that don't exist, checked in parallel
+		final LlvmToolOptionBatch checked = batch.withoutMissingPaths();
+		if (checked.isEmpty()) {
+			return Status.OK_STATUS;
+		}
+		//get the projects in the workspace that use LLVM
+		IProject[] projects = getProjects(checked);
+		return ProjectRunner.run(Messages.LlvmToolOptionPathUtil_0, projects,
+				new ProjectRunner.IProjectOperation() {
+					public boolean run(IProject proj) throws CoreException {
+						//only apply to C++ projects if requested
+						if (checked.isCppProjectsOnly() && !isCppProject(proj)) {
+							return false;
 						}
+						//if any of the build configurations were modified
+						if (applyBatchToProject(proj, checked, summary)) {
+							//save project build info
+							ManagedBuildManager.saveBuildInfo(proj, true);
+							if (checked.isCppProjectsOnly()) {
+								updateCppProject(proj);
+							}
+							return true;
+						}
+						return false;
 					}
-					//if the path was removed successfully
-					if (success) {
-						//save project build info
-						ManagedBuildManager.saveBuildInfo(proj, true);					
-					}
-				}
-			}			
-		}
+				}, monitor);
 	}
 
 	/**
-	 * Add a path to specific build configuration's Tool option. 
+	 * Returns the LLVM projects the batch is applied to.
 	 * 
-	 * @param cf Build configuration
-	 * @param path Path or file name to add
-	 * @param var Value of the option type
-	 * @return boolean True if path was added successfully
+	 * @param batch Tool option operations to apply
+	 * @return IProject[] Projects
 	 */
-	private static boolean addPathToSelectedToolOptionBuildConf(IConfiguration cf, String path, int var) {
-		switch (var) {
-		case INCLUDE:
-			return addLlvmIncludePathToToolOption(cf, path);
-		case LIB:
-			return addLlvmLibToToolOption(cf, path);
-		case LIB_PATH:
-			return addLlvmLibSearchPathToToolOption(cf, path);
-		default:
-			return false;
+	private static IProject[] getProjects(LlvmToolOptionBatch batch) {
+		if (batch.getProjects() == null) {
+			return LlvmProjectRegistry.getProjects();
 		}
+		List<IProject> projects = new ArrayList<IProject>();
+		for (IProject proj : batch.getProjects()) {
+			if (LlvmProjectRegistry.isLlvmProject(proj)) {
+				projects.add(proj);
+			}
+		}
+		return projects.toArray(new IProject[projects.size()]);
 	}
 
 	/**
-	 * Removes a path from specific build configuration's Tool option. 
+	 * Applies all operations of the batch to every build configuration of the project.
 	 * 
-	 * @param cf Build configuration
-	 * @param path Path or file name to remove
-	 * @param var Value of the option type
-	 * @return boolean True if path was removed successfully
+	 * @param proj IProject Project
+	 * @param batch Tool option operations to apply
+	 * @param summary Receives the values that were actually added or removed
+	 * @return boolean True if at least one build configuration was modified
+	 */
+	private static boolean applyBatchToProject(IProject proj, LlvmToolOptionBatch batch, ToolOptionChangeSummary summary) {
+		boolean success = false;
+		//respect the values the project adds or excludes
+		batch = batch.forProject(proj);
+		//get all build configurations of the IProject
+		IConfiguration[] configs = getAllBuildConfigs(proj);
+		for (IConfiguration cf : configs) {
+			success |= applyBatchToBuildConf(proj, cf, batch, summary);
+		}
+		return success;
+	}
+
+	/**
+	 * Returns true if the project contains C++ source files.
+	 * 
+	 * @param proj IProject Project
+	 * @return boolean True if C++ project
 	 */
-	private static boolean removePathFromSelectedToolOptionBuildConf(IConfiguration cf, String path, int var) {
-		switch (var) {
-		case INCLUDE:
-			return removeLlvmIncludePathFromToolOption(cf, path);
-		case LIB:
-			return removeLlvmLibFromToolOption(cf, path);
-		case LIB_PATH:
-			return removeLlvmLibSearchPathFromToolOption(cf, path);
-		default:
-			return false;
+	private static boolean isCppProject(IProject proj) {
+		return SourceLanguageIndex.containsCpp(proj);
+	}
+
+	/**
+	 * Updates project description, refreshes the project and
+	 * rebuilds the index after C++ specific paths have been added.
+	 * 
+	 * @param proj IProject Project
+	 */
+	private static void updateCppProject(IProject proj) {
+		ICProjectDescription projectDescription = CoreModel.getDefault().getProjectDescription(proj);
+		try {
+			CoreModel.getDefault().setProjectDescription(proj, projectDescription);
+		} catch (CoreException e) {
+			e.printStackTrace();
 		}
+		//use refresh scope manager to refresh
+		RefreshScopeManager manager = RefreshScopeManager.getInstance();
+		IWorkspaceRunnable runnable = manager.getRefreshRunnable(proj);
+		try {
+			ResourcesPlugin.getWorkspace().run(runnable, null, IWorkspace.AVOID_UPDATE, new NullProgressMonitor());
+		} catch (CoreException e) {
+			e.printStackTrace();
+		}
+		//rebuilt the project index
+		ProjectIndex.rebuiltIndex(proj);
 	}
 
 	/**
@@ -333,315 +347,236 @@ public class LlvmToolOptionPathUtil {
 	}
 
 	/**
-	 * Adds an include path to LLVM front-end's include path option.
-	 * 
-	 * @param cf IConfiguration Build configuration
-	 * @param newIncludePath Include path to be added to LLVM front-end's Include path option
-	 */
-	private static boolean addLlvmIncludePathToToolOption(IConfiguration cf, String newIncludePath) {
-		//get LLVM front-end
-		ITool llvmFrontEnd = getLlvmFrontEnd(cf);
-		//If the LLVM front-end is found from the given build configuration
-		if (llvmFrontEnd != null) {
-			//get LLVM front-end Include paths option.
-			IOption llvmFrontEndIncPathOption = getLlvmFrontEndIncludePathOption(cf);
-			//add a new include path to front-end's Include paths option.
-			boolean val = addIncludePathToToolOption(cf, llvmFrontEnd, llvmFrontEndIncPathOption, newIncludePath);
-			return val;
-		} 
-		return false;
-	}
-
-	/**
-	 * Removes an include path from LLVM front-end's include path option.
-	 * 
-	 * @param cf IConfiguration Build configuration
-	 * @param removeIncludePath Include path to be removed from LLVM front-end's Include path option
-	 */
-	private static boolean removeLlvmIncludePathFromToolOption(IConfiguration cf, String removeIncludePath) {
-		//get LLVM front-end
-		ITool llvmFrontEnd = getLlvmFrontEnd(cf);
-		//If the LLVM front-end is found from the given build configuration
-		if (llvmFrontEnd != null) {
-			//get LLVM front-end Include paths option.
-			IOption llvmFrontEndIncPathOption = getLlvmFrontEndIncludePathOption(cf);
-			//remove an include path from front-end's Include paths option.
-			removeIncludePathFromToolOption(cf, llvmFrontEnd, llvmFrontEndIncPathOption, removeIncludePath);
-			return true;
-		} 
-		return false;
-	}
-
-	/**
-	 * Adds a Library to LLVM linker's Libraries Option.
-	 * 
-	 * @param cf IConfiguration Build configuration
-	 * @param lib Library name
-	 * @return boolean Returns true if Library Option was added successfully for the LLVM Linker.
-	 */
-	private static boolean addLlvmLibToToolOption(IConfiguration cf, String lib) {
-		//get LLVM linker
-		ITool llvmLinker = getLlvmLinker(cf);
-		//If the LLVM linker is found from the given build configuration
-		if (llvmLinker != null) {
-			//get LLVM Linker Libraries option
-			IOption librariesOption = getLlvmLinkerLibrariesOption(cf);
-			//add library to LLVM linker's Libraries Option type
-			boolean val = addLibraryToToolOption(cf, llvmLinker, librariesOption, lib);
-			return val;
-		} 
-		//adding the library failed
-		return false;
-	}
-
-	/**
-	 * Removes a Library from LLVM linker's Libraries Option.
-	 * 
-	 * @param cf IConfiguration Build configuration
-	 * @param removeLib Library name
-	 * @return boolean Returns true if Library Option was removed successfully from the LLVM Linker.
-	 */
-	private static boolean removeLlvmLibFromToolOption(IConfiguration cf, String removeLib) {
-		//get LLVM linker
-		ITool llvmLinker = getLlvmLinker(cf);
-		//If the LLVM linker is found from the given build configuration
-		if (llvmLinker != null) {
-			//get LLVM Linker Libraries option
-			IOption librariesOption = getLlvmLinkerLibrariesOption(cf);
-			//remove a library from LLVM linker's Libraries Option type
-			removeLibraryFromToolOption(cf, llvmLinker, librariesOption, removeLib);
-			return true;
-		} 
-		//removing the library failed
-		return false;
-	}
-
-	/**
-	 * Adds a Library search path to LLVM linker's Library search path Option.
-	 * 
-	 * @param cf IConfiguration Build configuration
-	 * @param libDir Library search path
-	 * @return boolean Returns true if Library search path Option was added successfully for the LLVM Linker.
-	 */
-	private static boolean addLlvmLibSearchPathToToolOption(IConfiguration cf, String libDir) {
-		//get LLVM linker
-		ITool llvmLinker = getLlvmLinker(cf);
-		//If the LLVM linker is found from the given build configuration
-		if (llvmLinker != null) {
-			//get LLVM Linker Library search path option
-			IOption libDirOption = getLlvmLinkerLibrarySearchPathOption(cf);
-			//add library search path to LLVM linker's Library Search Path Option type
-			boolean val = addLibrarySearchPathToToolOption(cf, llvmLinker, libDirOption, libDir);
-			return val;
-		} 
-		//adding library failed
-		return false;
-	}
-
-	/**
-	 * Removes a Library search path from LLVM linker's Library search path Option.
-	 * 
-	 * @param cf IConfiguration Build configuration
-	 * @param removeLibDir Library search path
-	 * @return boolean Returns true if Library search path Option was removed successfully from the LLVM Linker.
-	 */
-	private static boolean removeLlvmLibSearchPathFromToolOption(IConfiguration cf, String removeLibDir) {
-		//get LLVM linker
-		ITool llvmLinker = getLlvmLinker(cf);
-		//If the LLVM linker is found from the given build configuration
-		if (llvmLinker != null) {
-			//get LLVM Linker Library search path option
-			IOption libDirOption = getLlvmLinkerLibrarySearchPathOption(cf);
-			//remove a library search path from LLVM linker's Library Search Path Option type
-			removeLibrarySearchPathFromToolOption(cf, llvmLinker, libDirOption, removeLibDir);
-			return true;
-		} 
-		//removing the library search path failed
-		return false;
-	}
-
-	/**
-	 * Adds include path for given Build configuration's Tool's Include path Option.
+	 * Returns the build output folders of the project. The output of a build
+	 * configuration is created in the working directory of its builder.
 	 * 
-	 * @param cf IConfiguration Build configuration
-	 * @param cfTool ITool Tool
-	 * @param option Tool Option type
-	 * @param newIncludePath Include path to be added to Tool's Include path option
-	 */
-	private static boolean addIncludePathToToolOption(IConfiguration cf, ITool cfTool, IOption option, String newIncludePath) {
-		try {
-			//add path only if it does not exists
-			String[] incPaths = option.getIncludePaths();
-			for (String inc : incPaths) {
-				if (inc.equalsIgnoreCase(newIncludePath)) {
-					return false;
-				}
+	 * @param proj IProject Project
+	 * @return IFolder[] Output folders or null if the output of a build configuration
+	 * isn't created in a folder of the project
+	 */
+	static IFolder[] getOutputFolders(IProject proj) {
+		IConfiguration[] configs = getAllBuildConfigs(proj);
+		IFolder[] folders = new IFolder[configs.length];
+		for (int i = 0; i < configs.length; i++) {
+			folders[i] = getOutputFolder(proj, configs[i]);
+			if (folders[i] == null) {
+				return null;
 			}
-			//add a new include path to linker's Include paths option.
-			addInputToToolOption(cf, cfTool, option, newIncludePath, incPaths);
-		} catch (BuildException e) {
-			//show error
-			e.printStackTrace();
 		}
-		return true;
+		return folders;
 	}
 
 	/**
-	 * Removes an include path from given Build configuration's Tool's Include path Option.
+	 * Returns the working directory of the builder of a build configuration.
 	 * 
+	 * @param proj IProject Project of the build configuration
 	 * @param cf IConfiguration Build configuration
-	 * @param cfTool ITool Tool
-	 * @param option Tool Option type
-	 * @param removeIncludePath Include path to be removed from Tool's Include path option
+	 * @return IFolder Output folder or null if it isn't a folder of the project
 	 */
-	private static void removeIncludePathFromToolOption(IConfiguration cf, ITool cfTool, IOption option, String removeIncludePath) {
+	private static IFolder getOutputFolder(IProject proj, IConfiguration cf) {
+		IPath cwd = cf.getBuildData().getBuilderCWD();
+		if (cwd == null) {
+			return null;
+		}
+		String value;
 		try {
-			//remove an include path from linker's Include paths option.
-			removeInputFromToolOption(cf, cfTool, option, removeIncludePath, option.getIncludePaths());
-		} catch (BuildException e) {
-			//show error
+			//e.g. ${workspace_loc:/project}/Debug
+			value = CCorePlugin.getDefault().getCdtVariableManager().resolveValue(cwd.toString(),
+					"", null, ManagedBuildManager.getDescriptionForConfiguration(cf)); //$NON-NLS-1$
+		} catch (CdtVariableException e) {
 			e.printStackTrace();
+			return null;
 		}
+		IPath path = new Path(value);
+		IContainer container;
+		if (path.isAbsolute()) {
+			container = ResourcesPlugin.getWorkspace().getRoot().getContainerForLocation(path);
+		} else if (path.segmentCount() > 0) {
+			container = proj.getFolder(path);
+		} else {
+			container = proj;
+		}
+		if (container instanceof IFolder && proj.equals(container.getProject())) {
+			return (IFolder) container;
+		}
+		return null;
 	}
 
 	/**
-	 * Adds new Library for the Linker's Libraries Option.
+	 * Applies the operations of the batch to the build configuration's Tool options.
 	 * 
+	 * @param proj IProject Project of the build configuration
 	 * @param cf IConfiguration Build configuration
-	 * @param cfTool ITool Tool
-	 * @param option Tool Option type
-	 * @param newLibrary Library
-	 */
-	private static boolean addLibraryToToolOption(IConfiguration cf, ITool cfTool, IOption option, String newLibrary) {
-		try {
-			if(option != null) {
-				//add library only if it does not exists
-				String[] libraries = option.getLibraries();
-				for (String lib : libraries) {
-					if (lib.equalsIgnoreCase(newLibrary)) {
-						return false;
-					}
+	 * @param batch Tool option operations to apply
+	 * @param summary Receives the values that were actually added or removed
+	 * @return boolean True if at least one Tool option was modified
+	 */
+	private static boolean applyBatchToBuildConf(IProject proj, IConfiguration cf, LlvmToolOptionBatch batch,
+			ToolOptionChangeSummary summary) {
+		boolean success = false;
+		int[] vars = {INCLUDE, LIB, LIB_PATH};
+		for (int var : vars) {
+			List<LlvmToolOptionBatch.Operation> ops = batch.getOperations(var);
+			if (!ops.isEmpty()) {
+				ToolOptionChangeSummary.Change change = applyOperationsToToolOption(proj, cf, var, ops);
+				if (change != null) {
+					summary.add(change);
+					success = true;
 				}
-				//add a new library to linker's Libraries option.
-				addInputToToolOption(cf, cfTool, option, newLibrary, libraries);
 			}
-		} catch (BuildException e) {
-			//show error
-			e.printStackTrace();
 		}
-		return true;
+		return success;
 	}
 
 	/**
-	 * Removes a new Library from the Linker's Libraries Option.
+	 * Adds and removes values of one Tool option type in a build configuration.
+	 * The new value of the Option is set only once and only if it differs
+	 * from the existing value.
 	 * 
+	 * @param proj IProject Project of the build configuration
 	 * @param cf IConfiguration Build configuration
-	 * @param cfTool ITool Tool
-	 * @param option Tool Option type
-	 * @param removeLibrary Library
-	 */
-	private static void removeLibraryFromToolOption(IConfiguration cf, ITool cfTool, IOption option, String removeLibrary) {
+	 * @param var Tool option's value
+	 * @param ops Operations for the Tool option type
+	 * @return Change Values that were added and removed or null if the Tool option wasn't modified
+	 */
+	private static ToolOptionChangeSummary.Change applyOperationsToToolOption(IProject proj, IConfiguration cf, int var,
+			List<LlvmToolOptionBatch.Operation> ops) {
+		//get LLVM Tool and its Option
+		ToolOptionCache.ToolOption toolOption = ToolOptionCache.get(cf, var);
+		//If the Tool and the Option are found from the given build configuration
+		if (toolOption == null || toolOption.getOption() == null) {
+			return null;
+		}
+		IOption option = toolOption.getOption();
+		String[] oldValues;
+		PathSet values;
 		try {
-			//remove a library from linker's Libraries option.
-			removeInputFromToolOption(cf, cfTool, option, removeLibrary, option.getLibraries());
+			oldValues = getToolOptionValues(option, var);
+			values = new PathSet(oldValues, var != LIB);
 		} catch (BuildException e) {
 			//show error
 			e.printStackTrace();
+			return null;
+		}
+		for (LlvmToolOptionBatch.Operation op : ops) {
+			if (op.isAdd()) {
+				values.add(op.getValue());
+			} else {
+				values.remove(op.getValue());
+			}
 		}
+		if (!values.isModified()) {
+			return null;
+		}
+		String[] newValues = values.toArray();
+		//e.g. a value was added and removed again
+		if (Arrays.equals(oldValues, newValues)) {
+			return null;
+		}
+		//set new values array for the option for the given build configuration
+		IOption newOption = ManagedBuildManager.setOption(cf, toolOption.getTool(), option, newValues);
+		//CDT may have created a new option for the configuration
+		ToolOptionCache.optionChanged(cf, option, newOption);
+		//the build environment of the configuration contains the values
+		LlvmInvalidationBus.toolOptionValuesChanged(cf);
+		return new ToolOptionChangeSummary.Change(proj, cf.getId(), var,
+				diff(newValues, oldValues, var), diff(oldValues, newValues, var));
 	}
 
-	//Works only if Eclipse Bugzilla Bug 321040 fix is applied
 	/**
-	 * Adds new Library search path for the Linker's Library search path Option.
+	 * Returns the values that are in the first array but not in the second array.
 	 * 
-	 * @param cf IConfiguration Build configuration
-	 * @param cfTool ITool Tool
-	 * @param option Tool Option type
-	 * @param newLibraryPath Library search path
-	 */
-	private static boolean addLibrarySearchPathToToolOption(IConfiguration cf, ITool cfTool, IOption option, String newLibraryPath) {
-		try {
-			if(option != null) {
-				//add path only if it does not exists
-				String[] libPaths = option.getLibraryPaths();
-				for (String libPath : libPaths) {
-					if (libPath.equalsIgnoreCase(newLibraryPath)) {
-						return false;
-					}
-				}
-				//add a new library path to linker's Library search path option.
-				addInputToToolOption(cf, cfTool, option, newLibraryPath, libPaths);
+	 * @param values Values
+	 * @param others Values to compare to
+	 * @param var Tool option's value
+	 * @return String[] Values missing from the other array
+	 */
+	private static String[] diff(String[] values, String[] others, int var) {
+		PathSet otherSet = new PathSet(others, var != LIB);
+		List<String> diff = new ArrayList<String>();
+		for (String value : values) {
+			if (!otherSet.contains(value)) {
+				diff.add(value);
 			}
-		} catch (BuildException e) {
-			//show error
-			e.printStackTrace();
 		}
-		return true;
+		return diff.toArray(new String[diff.size()]);
 	}
 
 	/**
-	 * Removes a Library search path from the Linker's Library search path Option.
-	 * Since CDT 8.0 (Bugzilla Bug 321040)
+	 * Returns the current values of the LLVM Tool option of a build configuration.
 	 * 
 	 * @param cf IConfiguration Build configuration
-	 * @param cfTool ITool Tool
-	 * @param option Tool Option type
-	 * @param removeSearchPath Library search path
+	 * @param var Tool option's value (INCLUDE, LIB or LIB_PATH)
+	 * @return String[] Values or null if the configuration doesn't have the Tool option
 	 */
-	private static void removeLibrarySearchPathFromToolOption(IConfiguration cf, ITool cfTool, IOption option, String removeSearchPath) {
+	public static String[] getToolOptionValues(IConfiguration cf, int var) {
+		ToolOptionCache.ToolOption toolOption = ToolOptionCache.get(cf, var);
+		if (toolOption == null || toolOption.getOption() == null) {
+			return null;
+		}
 		try {
-			//remove a library path from linker's Library search path option.
-			removeInputFromToolOption(cf, cfTool, option, removeSearchPath, option.getLibraryPaths());
+			return getToolOptionValues(toolOption.getOption(), var);
 		} catch (BuildException e) {
-			//show error
 			e.printStackTrace();
+			return null;
 		}
 	}
 
 	/**
-	 * Adds a new value to specific Option.
+	 * Returns the current values of the Tool option.
 	 * 
-	 * @param cf IConfiguration Build configuration
-	 * @param cfTool ITool Tool
 	 * @param option Tool Option type
-	 * @param newValue New value to be added to the Option type
-	 * @param existingValues Existing Option type values
+	 * @param var Tool option's value
+	 * @return String[] Include paths, libraries or library search paths
+	 * @throws BuildException if the Option has a different value type
 	 */
-	private static void addInputToToolOption(IConfiguration cf, ITool cfTool, IOption option, String newValue, String[] existingValues) {
-		//if Option type is found
-		if (option != null) {
-			//append new value with existing values
-			String[] newValues = addNewPathToExistingPathList(existingValues, newValue);
-			//set new values array for the option for the given build configuration
-			ManagedBuildManager.setOption(cf, cfTool, option, newValues);
-		}
-		else{
-			//log error
+	private static String[] getToolOptionValues(IOption option, int var) throws BuildException {
+		switch (var) {
+		case INCLUDE:
+			return option.getIncludePaths();
+		case LIB:
+			return option.getLibraries();
+		case LIB_PATH:
+			//Works only if Eclipse Bugzilla Bug 321040 fix is applied
+			return option.getLibraryPaths();
+		default:
+			return new String[0];
 		}
 	}
 
 	/**
-	 * Removes a value from a specific Option.
+	 * Resolves the LLVM Tool and its Option for the given option type.
+	 * Use ToolOptionCache to get cached results.
 	 * 
 	 * @param cf IConfiguration Build configuration
-	 * @param cfTool ITool Tool
-	 * @param option Tool Option type
-	 * @param removeValue Value to be removed from the Option type
-	 * @param existingValues Existing Option type values
-	 */
-	private static void removeInputFromToolOption(IConfiguration cf, ITool cfTool, IOption option, String removeValue, String[] existingValues) {
-		//if Option type is found
-		if (option != null) {
-			//check that list has values
-			if(existingValues.length>0) {
-				//remove value from existing values
-				String[] newValues = removePathFromExistingPathList(existingValues, removeValue);
-				//set new values array for the option for the given build configuration
-				ManagedBuildManager.setOption(cf, cfTool, option, newValues);
+	 * @param var Tool option's value
+	 * @return ToolOption or null if the Tool isn't found
+	 */
+	static ToolOptionCache.ToolOption resolveToolOption(IConfiguration cf, int var) {
+		switch (var) {
+		case INCLUDE: {
+			ITool llvmFrontEnd = getLlvmFrontEnd(cf);
+			if (llvmFrontEnd != null) {
+				return new ToolOptionCache.ToolOption(llvmFrontEnd, getLlvmFrontEndIncludePathOption(cf));
 			}
+			return null;
 		}
-		else{
-			//log error
+		case LIB: {
+			ITool llvmLinker = getLlvmLinker(cf);
+			if (llvmLinker != null) {
+				return new ToolOptionCache.ToolOption(llvmLinker, getLlvmLinkerLibrariesOption(cf));
+			}
+			return null;
+		}
+		case LIB_PATH: {
+			ITool llvmLinker = getLlvmLinker(cf);
+			if (llvmLinker != null) {
+				return new ToolOptionCache.ToolOption(llvmLinker, getLlvmLinkerLibrarySearchPathOption(cf));
+			}
+			return null;
+		}
+		default:
+			return null;
 		}
 	}
 
@@ -774,21 +709,12 @@ public class LlvmToolOptionPathUtil {
 	 */
 	public static String[] addNewPathToExistingPathList(String[] existingPaths, String newPath) {
 		String pathSep = java.io.File.pathSeparator;  // semicolon for windows, colon for Linux/Mac
-		List<String> newPathList = new ArrayList<String>();
-		String path;
-		//adds existing paths to new paths list
-		for (int i = 0; i < existingPaths.length; i++) {
-			path = existingPaths[i];
-			newPathList.add(path);
-		}
 		//separates new path if it has multiple paths separated by a path separator
 		String[] newPathArray = newPath.split(pathSep);
-		for (int i = 0; i < newPathArray.length; i++) {
-			path = newPathArray[i];
-			newPathList.add(path);
-		}
 		//creates a new list that includes all existing paths as well as new paths
-		String[] newArray = newPathList.toArray(new String[0]);
+		String[] newArray = new String[existingPaths.length + newPathArray.length];
+		System.arraycopy(existingPaths, 0, newArray, 0, existingPaths.length);
+		System.arraycopy(newPathArray, 0, newArray, existingPaths.length, newPathArray.length);
 		return newArray;
 	}
 
@@ -842,27 +768,13 @@ public class LlvmToolOptionPathUtil {
 		return sB.toString();
 	}
 
-	/**
-	 * Checks if a file path exists.
-	 * 
-	 * @return boolean True if the file exists.
-	 */
-	private static boolean pathExists(String path) {
-		//return true if path exists.
-		return new File(path).exists();
-	}
-
 	/**
 	 * Get all include paths in a String array.
 	 * 
 	 * @return String[] A String array of include paths
 	 */
 	private static String[] getAllIncludePaths() {
-		//get all include paths
-		String includePathList = LlvmPreferenceStore.getIncludePath();
-		//split paths to String array
-		String[] incPaths = includePathList.split(Separators.getPathSeparator());
-		return incPaths;
+		return LlvmPreferenceStore.getIncludePathList().toArray();
 	}
 
 	/**
@@ -871,11 +783,7 @@ public class LlvmToolOptionPathUtil {
 	 * @return String[] A String array of libraries
 	 */
 	private static String[] getAllLibraries() {
-		//get all libraries
-		String libList = LlvmPreferenceStore.getLibraries();
-		//split values to String array
-		String[] libs = libList.split(Separators.getPathSeparator());
-		return libs;
+		return LlvmPreferenceStore.getLibraryList().toArray();
 	}
 
 	/**
@@ -884,11 +792,7 @@ public class LlvmToolOptionPathUtil {
 	 * @return String[] A String array of library paths
 	 */
 	private static String[] getAllLibraryPaths() {
-		//get all library paths
-		String libPathList = LlvmPreferenceStore.getLibraryPath();
-		//split paths to String array
-		String[] libPaths = libPathList.split(Separators.getPathSeparator());
-		return libPaths;
+		return LlvmPreferenceStore.getLibraryPathList().toArray();
 	}
 	
 	/**
@@ -896,10 +800,9 @@ public class LlvmToolOptionPathUtil {
 	 * every project's build configurations.
 	 */
 	public static void addAllIncludesToBuildConf() {
-		String[] includes = getAllIncludePaths();
-		for(String inc : includes) {
-			addLlvmIncludePath(inc);			
-		}
+		LlvmToolOptionBatch batch = new LlvmToolOptionBatch();
+		batch.addAll(getAllIncludePaths(), INCLUDE, true);
+		applyBatch(batch);
 	}
 	
 	/**
@@ -907,12 +810,9 @@ public class LlvmToolOptionPathUtil {
 	 * every project's build configurations.
 	 */
 	public static void addAllLibsToBuildConf() {
-		String[] libs = getAllLibraries();
-		for(String lib : libs) {
-//			if (!lib.equalsIgnoreCase("stdc++")) { //$NON-NLS-1$ //C++ specific
-				addLlvmLib(lib);
-//			}
-		}
+		LlvmToolOptionBatch batch = new LlvmToolOptionBatch();
+		batch.addAll(getAllLibraries(), LIB, true);
+		applyBatch(batch);
 	}
 	
 	/**
@@ -920,12 +820,35 @@ public class LlvmToolOptionPathUtil {
 	 * every project's build configurations. 
 	 */
 	public static void addAllLibPathsToBuildConf() {
-		String[] libPaths = getAllLibraryPaths();
-		for(String libPath : libPaths) {
-//			if (!libPath.equalsIgnoreCase(LlvmEnvironmentVariableSupplier.getMinGWStdLib())) { //C++ specific
-				addLlvmLibraryPath(libPath);	
-//			}
-		}
+		LlvmToolOptionBatch batch = new LlvmToolOptionBatch();
+		batch.addAll(getAllLibraryPaths(), LIB_PATH, true);
+		applyBatch(batch);
+	}
+
+	/**
+	 * Add all include paths, libraries and library paths found in LLVM
+	 * preference page to every project's build configurations.
+	 * Every project is saved at most once.
+	 */
+	public static void addAllToBuildConf() {
+		addAllToBuildConf(null);
+	}
+
+	/**
+	 * Adds all include paths, libraries and library search paths of the
+	 * preference page to the build configurations of the given projects.
+	 * Values added or excluded by a project are respected.
+	 * 
+	 * @param projects Projects or null for every LLVM project
+	 */
+	public static void addAllToBuildConf(IProject[] projects) {
+		LlvmToolOptionBatch batch = new LlvmToolOptionBatch();
+		batch.setProjects(projects);
+		batch.setIncludeProjectValues(true);
+		batch.addAll(getAllIncludePaths(), INCLUDE, true);
+		batch.addAll(getAllLibraries(), LIB, true);
+		batch.addAll(getAllLibraryPaths(), LIB_PATH, true);
+		applyBatch(batch);
 	}
 
 	//temporary hack until scanner discovery works
@@ -956,24 +879,25 @@ public class LlvmToolOptionPathUtil {
 		if (rightPath!=null && f1!=null) {
 			//get the first directory (mingw version)
 			f1 = f1.listFiles()[0];
+			LlvmToolOptionBatch batch = new LlvmToolOptionBatch();
+			batch.setCppProjectsOnly(true);
 			//add three includes if they exist
 			File testFile = new File(f1.getAbsolutePath()+"/include/c++"); //$NON-NLS-1$
 			if (testFile.exists()) {
 				LlvmPreferenceStore.appendIncludePath(testFile.getAbsolutePath());
-				addPathToToolOptionCppProjects(testFile.getAbsolutePath(), INCLUDE);
+				batch.addIncludePath(testFile.getAbsolutePath());
 			}
 			testFile = new File(f1.getAbsolutePath()+"/include/c++/mingw32"); //$NON-NLS-1$
 			if (testFile.exists()) {
 				LlvmPreferenceStore.appendIncludePath(testFile.getAbsolutePath());
-				addPathToToolOptionCppProjects(testFile.getAbsolutePath(), INCLUDE);
+				batch.addIncludePath(testFile.getAbsolutePath());
 			}
 			testFile = new File(f1.getAbsolutePath()+"/include/c++/backward"); //$NON-NLS-1$
 			if (testFile.exists()) {
 				LlvmPreferenceStore.appendIncludePath(testFile.getAbsolutePath());
-				addPathToToolOptionCppProjects(testFile.getAbsolutePath(), INCLUDE);
+				batch.addIncludePath(testFile.getAbsolutePath());
 			}
-    		//inform LLVM environment variable supplier that there has been a change
-    		LlvmEnvironmentVariableSupplier.notifyPreferenceChange();
+			applyBatch(batch);
 		}
 	}
 	
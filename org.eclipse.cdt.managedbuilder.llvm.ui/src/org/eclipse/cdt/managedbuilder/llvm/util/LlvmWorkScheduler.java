@@ -0,0 +1,132 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2013 Nokia Siemens Networks Oyj, Finland.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *      Nokia Siemens Networks - initial implementation
+ *      Petri Tuononen - Initial implementation
+ *******************************************************************************/
+package org.eclipse.cdt.managedbuilder.llvm.util;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.eclipse.cdt.managedbuilder.llvm.ui.LlvmUIPlugin;
+import org.eclipse.core.resources.IWorkspace;
+import org.eclipse.core.resources.IWorkspaceRunnable;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.MultiStatus;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.SubMonitor;
+import org.eclipse.core.runtime.jobs.ISchedulingRule;
+import org.eclipse.core.runtime.jobs.Job;
+
+/**
+ * Runs heavy workspace operations in the background. Tasks are identified by
+ * a key and a task that is scheduled while an earlier task with the same key
+ * is still waiting replaces the earlier one, so bursts of requests (e.g. one per
+ * project of a workspace build) end up as a single operation. Tasks run one after
+ * another in the order their keys were first scheduled, each as one workspace
+ * operation that holds only the rule of the task.
+ *
+ */
+public class LlvmWorkScheduler extends Job {
+
+	//job family used to find and join pending tasks
+	public static final Object FAMILY = LlvmWorkScheduler.class;
+
+	//delay before running so that requests of the same build end up in one task
+	private static final long COALESCE_DELAY_MS = 100;
+
+	//the only instance of the job
+	private static final LlvmWorkScheduler job = new LlvmWorkScheduler();
+
+	//waiting tasks by key
+	private final Map<Object, Task> pending = new LinkedHashMap<Object, Task>();
+
+	/**
+	 * Constructor.
+	 */
+	private LlvmWorkScheduler() {
+		super(Messages.LlvmWorkScheduler_0);
+		setSystem(true);
+		setPriority(Job.SHORT);
+	}
+
+	/**
+	 * Schedules a task. Replaces a waiting task with the same key.
+	 *
+	 * @param key Identifies the task
+	 * @param runnable Work to do
+	 * @param rule Scheduling rule held while the task runs, may be null
+	 */
+	public static void schedule(Object key, IWorkspaceRunnable runnable, ISchedulingRule rule) {
+		synchronized (job.pending) {
+			job.pending.put(key, new Task(runnable, rule));
+		}
+		job.schedule(COALESCE_DELAY_MS);
+	}
+
+	/**
+	 * Runs the waiting tasks.
+	 *
+	 * @param monitor Progress monitor
+	 * @return IStatus Result of every failed task
+	 */
+	@Override
+	protected IStatus run(IProgressMonitor monitor) {
+		SubMonitor progress = SubMonitor.convert(monitor);
+		MultiStatus result = new MultiStatus(LlvmUIPlugin.PLUGIN_ID, IStatus.OK, getName(), null);
+		while (true) {
+			Task task;
+			synchronized (this.pending) {
+				if (this.pending.isEmpty()) {
+					return result;
+				}
+				progress.setWorkRemaining(this.pending.size());
+				Iterator<Task> it = this.pending.values().iterator();
+				task = it.next();
+				it.remove();
+			}
+			try {
+				ResourcesPlugin.getWorkspace().run(task.runnable, task.rule,
+						IWorkspace.AVOID_UPDATE, progress.newChild(1));
+			} catch (OperationCanceledException e) {
+				synchronized (this.pending) {
+					this.pending.clear();
+				}
+				return Status.CANCEL_STATUS;
+			} catch (CoreException e) {
+				result.add(e.getStatus());
+			}
+		}
+	}
+
+	@Override
+	public boolean belongsTo(Object family) {
+		return FAMILY == family;
+	}
+
+	/**
+	 * A waiting task.
+	 */
+	private static class Task {
+
+		final IWorkspaceRunnable runnable;
+		final ISchedulingRule rule;
+
+		Task(IWorkspaceRunnable runnable, ISchedulingRule rule) {
+			this.runnable = runnable;
+			this.rule = rule;
+		}
+	}
+
+}
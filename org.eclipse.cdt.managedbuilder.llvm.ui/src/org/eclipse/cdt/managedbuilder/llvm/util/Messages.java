@@ -0,0 +1,35 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2013 Nokia Siemens Networks Oyj, Finland.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *      Nokia Siemens Networks - initial implementation
+ *      Petri Tuononen - Initial implementation
+ *******************************************************************************/
+package org.eclipse.cdt.managedbuilder.llvm.util;
+
+import org.eclipse.osgi.util.NLS;
+
+public class Messages extends NLS {
+	
+	private static final String BUNDLE_NAME = "org.eclipse.cdt.managedbuilder.llvm.util.messages"; //$NON-NLS-1$
+	public static String LlvmPathValidator_0;
+	public static String LlvmToolChainAvailability_0;
+	public static String LlvmToolOptionJob_0;
+	public static String LlvmToolOptionPathUtil_0;
+	public static String LlvmWorkScheduler_0;
+	public static String ProjectRunner_0;
+	public static String ProjectRunner_1;
+	
+	static {
+		// initialize resource bundle
+		NLS.initializeMessages(BUNDLE_NAME, Messages.class);
+	}
+
+	private Messages() {
+	}
+	
+}
@@ -0,0 +1,121 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2013 Nokia Siemens Networks Oyj, Finland.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *      Nokia Siemens Networks - initial implementation
+ *      Petri Tuononen - Initial implementation
+ *******************************************************************************/
+package org.eclipse.cdt.managedbuilder.llvm.util;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import org.eclipse.core.resources.IContainer;
+import org.eclipse.core.resources.IFolder;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceRuleFactory;
+import org.eclipse.core.resources.IWorkspaceRunnable;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.SubMonitor;
+import org.eclipse.core.runtime.jobs.ISchedulingRule;
+import org.eclipse.core.runtime.jobs.MultiRule;
+
+/**
+ * Refreshes the build output folders of built projects so that the files
+ * created by the build show in the workspace. Folders requested before the
+ * refresh starts are refreshed in one workspace operation that locks only
+ * the folders. A project whose output isn't created in its own folders is
+ * refreshed as a whole.
+ *
+ * @see LlvmWorkScheduler
+ */
+public class OutputRefresher {
+
+	//folders and projects waiting to be refreshed
+	private static final Set<IContainer> pending = new LinkedHashSet<IContainer>();
+
+	/**
+	 * Queues the build output folders of the projects to be refreshed.
+	 *
+	 * @param projects Built projects
+	 */
+	public static void refresh(Set<IProject> projects) {
+		//load the build info outside of the lock
+		Set<IContainer> requested = new LinkedHashSet<IContainer>();
+		for (IProject proj : projects) {
+			if (proj.isAccessible()) {
+				IFolder[] outputFolders = LlvmToolOptionPathUtil.getOutputFolders(proj);
+				if (outputFolders == null) {
+					requested.add(proj);
+					continue;
+				}
+				for (IFolder folder : outputFolders) {
+					requested.add(folder);
+				}
+			}
+		}
+		final IContainer[] folders;
+		synchronized (pending) {
+			if (!pending.addAll(requested)) {
+				return;
+			}
+			//replaces the waiting refresh, if any, with one that covers every pending folder
+			folders = pending.toArray(new IContainer[pending.size()]);
+		}
+		LlvmWorkScheduler.schedule(OutputRefresher.class, new IWorkspaceRunnable() {
+			public void run(IProgressMonitor monitor) {
+				refresh(folders, monitor);
+			}
+		}, getRefreshRule(folders));
+	}
+
+	/**
+	 * Refreshes the folders.
+	 *
+	 * @param folders Folders or projects
+	 * @param monitor Progress monitor
+	 */
+	private static void refresh(IContainer[] folders, IProgressMonitor monitor) {
+		synchronized (pending) {
+			for (IContainer folder : folders) {
+				pending.remove(folder);
+			}
+		}
+		SubMonitor progress = SubMonitor.convert(monitor, folders.length);
+		for (IContainer folder : folders) {
+			if (progress.isCanceled()) {
+				throw new OperationCanceledException();
+			}
+			try {
+				//creates the folder if the build created it
+				folder.refreshLocal(IResource.DEPTH_INFINITE, progress.newChild(1));
+			} catch (CoreException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	/**
+	 * Returns a rule that covers refreshing every folder.
+	 *
+	 * @param folders Folders or projects
+	 * @return ISchedulingRule Rule
+	 */
+	private static ISchedulingRule getRefreshRule(IContainer[] folders) {
+		IResourceRuleFactory factory = ResourcesPlugin.getWorkspace().getRuleFactory();
+		ISchedulingRule rule = null;
+		for (IContainer folder : folders) {
+			rule = MultiRule.combine(rule, factory.refreshRule(folder));
+		}
+		return rule;
+	}
+
+}
@@ -0,0 +1,251 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2013 Nokia Siemens Networks Oyj, Finland.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *      Nokia Siemens Networks - initial implementation
+ *      Petri Tuononen - Initial implementation
+ *******************************************************************************/
+package org.eclipse.cdt.managedbuilder.llvm.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * An immutable ordered list of paths or library names without duplicates,
+ * e.g. the value of a preference or an environment variable. Values are
+ * compared exactly. The joined form (values separated by the path separator)
+ * and the split form are both kept, so neither is computed more than once.
+ * Modifications return a new list, or the same list if nothing changed.
+ *
+ */
+public final class PathList {
+
+	public static final PathList EMPTY = new PathList(new String[0], ""); //$NON-NLS-1$
+
+	//values in order
+	private final String[] values;
+	private final List<String> valueList;
+	//values separated by the path separator
+	private final String joined;
+	//membership, created when first needed
+	private volatile Set<String> valueSet;
+
+	private PathList(String[] values, String joined) {
+		this.values = values;
+		this.valueList = Collections.unmodifiableList(Arrays.asList(values));
+		this.joined = joined;
+	}
+
+	/**
+	 * Returns the list of values separated by the path separator.
+	 * Empty values and duplicates are ignored, so a trailing separator is allowed.
+	 *
+	 * @param joined Values separated by the path separator, may be null
+	 * @return PathList List
+	 */
+	public static PathList parse(String joined) {
+		if (joined == null || joined.length() == 0) {
+			return EMPTY;
+		}
+		String separator = Separators.getPathSeparator();
+		List<String> parts = new ArrayList<String>();
+		int start = 0;
+		while (start <= joined.length()) {
+			int end = joined.indexOf(separator, start);
+			if (end < 0) {
+				end = joined.length();
+			}
+			parts.add(joined.substring(start, end));
+			start = end + separator.length();
+		}
+		return of(parts.toArray(new String[parts.size()]));
+	}
+
+	/**
+	 * Returns the list of the values. Empty values and duplicates are ignored.
+	 *
+	 * @param values Values, may contain null
+	 * @return PathList List
+	 */
+	public static PathList of(String[] values) {
+		Set<String> seen = new HashSet<String>();
+		List<String> unique = new ArrayList<String>(values.length);
+		for (String value : values) {
+			if (value != null && value.length() != 0 && seen.add(value)) {
+				unique.add(value);
+			}
+		}
+		if (unique.isEmpty()) {
+			return EMPTY;
+		}
+		return create(unique.toArray(new String[unique.size()]));
+	}
+
+	/**
+	 * Creates a list from values that are known to be unique and not empty.
+	 *
+	 * @param values Values
+	 * @return PathList List
+	 */
+	private static PathList create(String[] values) {
+		StringBuffer sB = new StringBuffer();
+		for (String value : values) {
+			if (sB.length() > 0) {
+				sB.append(Separators.getPathSeparator());
+			}
+			sB.append(value);
+		}
+		return new PathList(values, sB.toString());
+	}
+
+	/**
+	 * Returns a list with the value added to the end.
+	 *
+	 * @param value Path or library name
+	 * @return PathList This list if the value is empty or already in the list
+	 */
+	public PathList with(String value) {
+		if (value == null || value.length() == 0 || contains(value)) {
+			return this;
+		}
+		String[] newValues = new String[this.values.length + 1];
+		System.arraycopy(this.values, 0, newValues, 0, this.values.length);
+		newValues[this.values.length] = value;
+		String newJoined = this.values.length == 0 ? value
+				: this.joined + Separators.getPathSeparator() + value;
+		return new PathList(newValues, newJoined);
+	}
+
+	/**
+	 * Returns a list with the values added to the end.
+	 *
+	 * @param newValues Paths or library names
+	 * @return PathList This list if no value was added
+	 */
+	public PathList withAll(String[] newValues) {
+		PathList list = this;
+		for (String value : newValues) {
+			list = list.with(value);
+		}
+		return list;
+	}
+
+	/**
+	 * Returns a list without the value.
+	 *
+	 * @param value Path or library name
+	 * @return PathList This list if the value isn't in the list
+	 */
+	public PathList without(String value) {
+		if (!contains(value)) {
+			return this;
+		}
+		if (this.values.length == 1) {
+			return EMPTY;
+		}
+		String[] newValues = new String[this.values.length - 1];
+		int i = 0;
+		for (String v : this.values) {
+			if (!v.equals(value)) {
+				newValues[i++] = v;
+			}
+		}
+		return create(newValues);
+	}
+
+	/**
+	 * Returns true if the list contains the value.
+	 *
+	 * @param value Path or library name
+	 * @return boolean
+	 */
+	public boolean contains(String value) {
+		if (value == null) {
+			return false;
+		}
+		//small lists are searched, large lists use a set
+		if (this.values.length < 8) {
+			for (String v : this.values) {
+				if (v.equals(value)) {
+					return true;
+				}
+			}
+			return false;
+		}
+		Set<String> set = this.valueSet;
+		if (set == null) {
+			set = new HashSet<String>(this.valueList);
+			this.valueSet = set;
+		}
+		return set.contains(value);
+	}
+
+	/**
+	 * Returns the number of values.
+	 *
+	 * @return int
+	 */
+	public int size() {
+		return this.values.length;
+	}
+
+	/**
+	 * Returns true if the list has no values.
+	 *
+	 * @return boolean
+	 */
+	public boolean isEmpty() {
+		return this.values.length == 0;
+	}
+
+	/**
+	 * Returns the values as an unmodifiable list. No copy is made.
+	 *
+	 * @return List of values
+	 */
+	public List<String> asList() {
+		return this.valueList;
+	}
+
+	/**
+	 * Returns a copy of the values.
+	 *
+	 * @return String[] Values
+	 */
+	public String[] toArray() {
+		return this.values.clone();
+	}
+
+	/**
+	 * Returns the values separated by the path separator.
+	 *
+	 * @return String Joined values
+	 */
+	public String join() {
+		return this.joined;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		return obj instanceof PathList && Arrays.equals(((PathList) obj).values, this.values);
+	}
+
+	@Override
+	public int hashCode() {
+		return this.joined.hashCode();
+	}
+
+	@Override
+	public String toString() {
+		return this.joined;
+	}
+
+}
@@ -0,0 +1,255 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2013 Nokia Siemens Networks Oyj, Finland.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *      Nokia Siemens Networks - initial implementation
+ *      Petri Tuononen - Initial implementation
+ *******************************************************************************/
+package org.eclipse.cdt.managedbuilder.llvm.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An ordered set of include paths, library search paths or libraries.
+ * Membership is checked in constant time by a canonical key. For paths the key
+ * ignores trailing separators and "." and ".." segments, and symbolic links are
+ * resolved once and cached. On Windows keys are case insensitive.
+ * The values are kept in insertion order as they were given.
+ *
+ * The list valued preferences and the Tool options they are copied to are
+ * both compared by this key, so removing a preference value removes the
+ * Tool option value that it was copied to.
+ *
+ */
+public class PathSet {
+
+	//true if paths and file names are case insensitive
+	private static final boolean caseInsensitive =
+		System.getProperty("os.name").toLowerCase().indexOf("win") >= 0; //$NON-NLS-1$
+	//canonical paths by the path as given
+	private static final Map<String, String> canonicalPaths = new ConcurrentHashMap<String, String>();
+
+	//values by canonical key in insertion order
+	private final LinkedHashMap<String, String> values = new LinkedHashMap<String, String>();
+	//true if the values are paths, false for library names
+	private final boolean paths;
+	//true if the set has been modified after it was created
+	private boolean modified = false;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param paths True if the values are paths, false for library names
+	 */
+	public PathSet(boolean paths) {
+		this.paths = paths;
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param initialValues Initial values. Empty values and duplicates are ignored.
+	 * @param paths True if the values are paths, false for library names
+	 */
+	public PathSet(String[] initialValues, boolean paths) {
+		this(paths);
+		for (String value : initialValues) {
+			if (value != null && value.length()>0) {
+				String key = key(value);
+				if (!this.values.containsKey(key)) {
+					this.values.put(key, value);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Adds a value to the end of the set if an equal value doesn't exist.
+	 *
+	 * @param value Path or library name
+	 * @return boolean True if the value was added
+	 */
+	public boolean add(String value) {
+		if (value == null || value.length()==0) {
+			return false;
+		}
+		String key = key(value);
+		if (this.values.containsKey(key)) {
+			return false;
+		}
+		this.values.put(key, value);
+		this.modified = true;
+		return true;
+	}
+
+	/**
+	 * Removes a value that is equal to the given value.
+	 *
+	 * @param value Path or library name
+	 * @return boolean True if the value was removed
+	 */
+	public boolean remove(String value) {
+		if (value == null || value.length()==0) {
+			return false;
+		}
+		if (this.values.remove(key(value)) != null) {
+			this.modified = true;
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Adds all values.
+	 *
+	 * @param newValues Paths or library names
+	 * @return boolean True if at least one value was added
+	 */
+	public boolean addAll(String[] newValues) {
+		boolean added = false;
+		for (String value : newValues) {
+			added |= add(value);
+		}
+		return added;
+	}
+
+	/**
+	 * Removes all values.
+	 *
+	 * @param removedValues Paths or library names
+	 * @return boolean True if at least one value was removed
+	 */
+	public boolean removeAll(String[] removedValues) {
+		boolean removed = false;
+		for (String value : removedValues) {
+			removed |= remove(value);
+		}
+		return removed;
+	}
+
+	/**
+	 * Returns true if the set contains a value equal to the given value.
+	 *
+	 * @param value Path or library name
+	 * @return boolean
+	 */
+	public boolean contains(String value) {
+		return value != null && this.values.containsKey(key(value));
+	}
+
+	/**
+	 * Returns true if values have been added or removed.
+	 *
+	 * @return boolean
+	 */
+	public boolean isModified() {
+		return this.modified;
+	}
+
+	/**
+	 * Returns the number of values.
+	 *
+	 * @return int
+	 */
+	public int size() {
+		return this.values.size();
+	}
+
+	/**
+	 * Returns the values in insertion order.
+	 *
+	 * @return String[]
+	 */
+	public String[] toArray() {
+		return this.values.values().toArray(new String[this.values.size()]);
+	}
+
+	/**
+	 * Returns the canonical key of a value.
+	 *
+	 * @param value Path or library name
+	 * @return String key
+	 */
+	private String key(String value) {
+		String key = this.paths ? canonicalize(value) : value.trim();
+		return caseInsensitive ? key.toLowerCase() : key;
+	}
+
+	/**
+	 * Returns the canonical form of a path. Absolute paths are resolved
+	 * by the file system (including symbolic links) once and cached.
+	 * Other paths such as paths containing build macros are only normalized.
+	 *
+	 * @param path Path
+	 * @return String canonical path
+	 */
+	public static String canonicalize(String path) {
+		String canonical = canonicalPaths.get(path);
+		if (canonical != null) {
+			return canonical;
+		}
+		canonical = normalize(path);
+		if (canonical.indexOf("${") < 0 && new File(canonical).isAbsolute()) { //$NON-NLS-1$
+			try {
+				canonical = new File(canonical).getCanonicalPath();
+			} catch (IOException e) {
+				//keep the normalized path
+			}
+		}
+		canonicalPaths.put(path, canonical);
+		return canonical;
+	}
+
+	/**
+	 * Forgets all cached canonical paths, e.g. after symbolic links have changed.
+	 */
+	public static void clearCache() {
+		canonicalPaths.clear();
+	}
+
+	/**
+	 * Removes redundant separators as well as "." and ".." segments.
+	 *
+	 * @param path Path
+	 * @return String normalized path
+	 */
+	private static String normalize(String path) {
+		String trimmed = path.trim();
+		if (trimmed.length()==0) {
+			return trimmed;
+		}
+		boolean absolute = trimmed.charAt(0)=='/' || trimmed.charAt(0)=='\\';
+		LinkedList<String> segments = new LinkedList<String>();
+		for (String segment : trimmed.split("[/\\\\]+")) { //$NON-NLS-1$
+			if (segment.length()==0 || ".".equals(segment)) { //$NON-NLS-1$
+				continue;
+			}
+			if ("..".equals(segment) && !segments.isEmpty() && !"..".equals(segments.getLast())) { //$NON-NLS-1$ //$NON-NLS-2$
+				segments.removeLast();
+			} else {
+				segments.add(segment);
+			}
+		}
+		StringBuilder sB = new StringBuilder();
+		if (absolute) {
+			sB.append(File.separatorChar);
+		}
+		for (String segment : segments) {
+			if (sB.length()>0 && sB.charAt(sB.length()-1)!=File.separatorChar) {
+				sB.append(File.separatorChar);
+			}
+			sB.append(segment);
+		}
+		return sB.toString();
+	}
+
+}
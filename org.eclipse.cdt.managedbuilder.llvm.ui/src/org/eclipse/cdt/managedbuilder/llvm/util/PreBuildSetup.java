@@ -0,0 +1,204 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2013 Nokia Siemens Networks Oyj, Finland.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *      Nokia Siemens Networks - initial implementation
+ *      Petri Tuononen - Initial implementation
+ *******************************************************************************/
+package org.eclipse.cdt.managedbuilder.llvm.util;
+
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.cdt.managedbuilder.llvm.ui.LlvmEnvironmentVariableSupplier;
+import org.eclipse.cdt.managedbuilder.llvm.ui.preferences.LlvmPreferenceStore;
+import org.eclipse.cdt.managedbuilder.llvm.ui.preferences.PreferenceConstants;
+
+/**
+ * Adds the C++ standard library and its search path to the LLVM preferences
+ * before a build. The setup is only performed again when the LLVM preferences
+ * or the environment have changed since the last time, so the steady-state
+ * cost of a build is the computation and comparison of a fingerprint.
+ * The fingerprint is saved in the plug-in state location, so the setup
+ * isn't performed again after a restart either.
+ *
+ */
+public class PreBuildSetup {
+
+	//file in the plug-in state location where the fingerprint is saved
+	private static final String STATE_FILE = "preBuildSetup.properties"; //$NON-NLS-1$
+	private static final String FINGERPRINT_KEY = "fingerprint"; //$NON-NLS-1$
+	//C++ standard library
+	private static final String STD_LIB = "stdc++"; //$NON-NLS-1$
+
+	/**
+	 * Writes the values added by the setup to the preferences.
+	 */
+	public interface IPreferenceWriter {
+
+		/**
+		 * Appends a value to a list valued preference unless it already exists.
+		 *
+		 * @param name Name of the preference
+		 * @param value Value to append
+		 */
+		void append(String name, String value);
+	}
+
+	//writes to the LLVM preference store
+	private static final IPreferenceWriter PREFERENCE_STORE = new IPreferenceWriter() {
+		public void append(String name, String value) {
+			LlvmPreferenceStore.appendValue(name, value);
+		}
+	};
+
+	//the shared instance
+	private static final PreBuildSetup instance = new PreBuildSetup(ProcessRunner.getDefault(), PREFERENCE_STORE);
+
+	//runs clang to find the library
+	private final ProcessRunner runner;
+	//writes the library to the preferences
+	private final IPreferenceWriter writer;
+	//fingerprint of the preferences and the environment after the last setup
+	private int fingerprint;
+	//true if the setup has been performed at least once
+	private boolean done = false;
+	//true if the saved fingerprint has been loaded
+	private boolean loaded = false;
+	//number of times the setup has actually been performed
+	private final AtomicInteger workCount = new AtomicInteger(0);
+
+	/**
+	 * Constructor.
+	 *
+	 * @param runner Runs the external tools
+	 * @param writer Writes the preferences
+	 */
+	public PreBuildSetup(ProcessRunner runner, IPreferenceWriter writer) {
+		this.runner = runner;
+		this.writer = writer;
+	}
+
+	/**
+	 * Returns the shared instance.
+	 *
+	 * @return PreBuildSetup
+	 */
+	public static PreBuildSetup getDefault() {
+		return instance;
+	}
+
+	/**
+	 * Performs the setup unless it has already been performed
+	 * for the current preferences and environment.
+	 *
+	 * @return boolean True if the setup was performed
+	 */
+	public synchronized boolean runIfNeeded() {
+		if (!this.loaded) {
+			load();
+		}
+		if (this.done && computeFingerprint() == this.fingerprint) {
+			return false;
+		}
+		performSetup();
+		this.workCount.incrementAndGet();
+		//the setup itself may change the preferences
+		this.fingerprint = computeFingerprint();
+		this.done = true;
+		save();
+		return true;
+	}
+
+	/**
+	 * Forgets the previous setup so that it is performed on the next build.
+	 */
+	public synchronized void reset() {
+		this.loaded = true;
+		this.done = false;
+	}
+
+	/**
+	 * Returns the number of times the setup has actually been performed.
+	 *
+	 * @return int
+	 */
+	public int getWorkCount() {
+		return this.workCount.get();
+	}
+
+	/**
+	 * Adds the C++ standard library and its directory to the preferences.
+	 *
+	 * @param path Directory of the library or null if it wasn't found
+	 */
+	public void addStdLib(String path) {
+		if (path == null) {
+			return;
+		}
+		//earlier versions stored the directory with a trailing separator
+		if (!LlvmPreferenceStore.getLibraryPathList().contains(path + Separators.getFileSeparator())) {
+			this.writer.append(PreferenceConstants.P_LLVM_LIBRARY_PATH, path);
+		}
+		this.writer.append(PreferenceConstants.P_LLVM_LIBRARIES, STD_LIB);
+	}
+
+	/**
+	 * Computes a fingerprint of the values the setup depends on.
+	 *
+	 * @return int Fingerprint
+	 */
+	protected int computeFingerprint() {
+		int hash = 17;
+		hash = 31 * hash + String.valueOf(System.getProperty("os.name")).hashCode(); //$NON-NLS-1$
+		hash = 31 * hash + String.valueOf(System.getenv("PATH")).hashCode(); //$NON-NLS-1$
+		hash = 31 * hash + LlvmPreferenceStore.getBinPath().hashCode();
+		hash = 31 * hash + LlvmPreferenceStore.getLibraryPath().hashCode();
+		hash = 31 * hash + LlvmPreferenceStore.getLibraries().hashCode();
+		return hash;
+	}
+
+	/**
+	 * Adds the C++ standard library of the platform to the preferences.
+	 */
+	protected void performSetup() {
+		String os = System.getProperty("os.name").toLowerCase(); //$NON-NLS-1$
+		if (os.indexOf("win") >= 0) { //$NON-NLS-1$
+			addStdLib(LlvmEnvironmentVariableSupplier.getMinGWStdLib());
+//			LlvmToolOptionPathUtil.addMissingCppIncludesForMingw(); //TODO: Remove when Scanner Discovery has been fixed
+		} else if (os.indexOf( "nix") >=0 || os.indexOf( "nux") >=0 /*|| os.indexOf( "mac") >=0 */) { //$NON-NLS-1$ //$NON-NLS-2$
+			addStdLib(FindStdLibPath.find(this.runner));
+		}
+	}
+
+	/**
+	 * Loads the fingerprint saved after the setup on a previous run.
+	 */
+	private void load() {
+		this.loaded = true;
+		Properties props = StateFile.load(STATE_FILE);
+		String value = props != null ? props.getProperty(FINGERPRINT_KEY) : null;
+		if (value != null) {
+			try {
+				this.fingerprint = Integer.parseInt(value);
+				this.done = true;
+			} catch (NumberFormatException e) {
+				//performs the setup again
+			}
+		}
+	}
+
+	/**
+	 * Saves the fingerprint so that the setup isn't performed again after a restart.
+	 */
+	private void save() {
+		Properties props = new Properties();
+		props.setProperty(FINGERPRINT_KEY, String.valueOf(this.fingerprint));
+		StateFile.save(STATE_FILE, props);
+	}
+
+}
@@ -0,0 +1,121 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2013 Nokia Siemens Networks Oyj, Finland.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *      Nokia Siemens Networks - initial implementation
+ *      Petri Tuononen - Initial implementation
+ *******************************************************************************/
+package org.eclipse.cdt.managedbuilder.llvm.util;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs external tools (clang, llvm-config, llvm-ar) and returns their output.
+ * A tool that doesn't exit in time is destroyed, so a hanging tool can't
+ * block a build or the thread that asked.
+ *
+ */
+public class ProcessRunner {
+
+	//how often the exit of a process is checked after its output has ended
+	private static final long POLL_INTERVAL_MS = 10;
+
+	//the shared instance
+	private static final ProcessRunner instance = new ProcessRunner();
+
+	/**
+	 * Constructor.
+	 */
+	protected ProcessRunner() {
+		//use getDefault()
+	}
+
+	/**
+	 * Returns the shared instance.
+	 *
+	 * @return ProcessRunner
+	 */
+	public static ProcessRunner getDefault() {
+		return instance;
+	}
+
+	/**
+	 * Runs a command and returns its output lines.
+	 *
+	 * @param timeoutMs Time the command may run before it is destroyed
+	 * @param command Command and its arguments
+	 * @return List of output lines, empty if the command failed or didn't exit in time
+	 */
+	public List<String> run(long timeoutMs, String... command) {
+		ProcessBuilder pb = new ProcessBuilder(command);
+		pb.redirectErrorStream(true);
+		final Process p;
+		try {
+			p = pb.start();
+		} catch (IOException e) {
+			e.printStackTrace();
+			return new ArrayList<String>();
+		}
+		final List<String> lines = new ArrayList<String>();
+		//the output is read in another thread so that the caller can give up waiting
+		Thread reader = new Thread(new Runnable() {
+			public void run() {
+				BufferedReader input = new BufferedReader(new InputStreamReader(p.getInputStream()));
+				try {
+					String line;
+					while ((line = input.readLine()) != null) {
+						synchronized (lines) {
+							lines.add(line);
+						}
+					}
+				} catch (IOException e) {
+					//the process was destroyed
+				} finally {
+					try {
+						input.close();
+					} catch (IOException e) {
+						//ignore
+					}
+				}
+			}
+		}, command[0]);
+		reader.setDaemon(true);
+		reader.start();
+		long deadline = System.currentTimeMillis() + timeoutMs;
+		try {
+			reader.join(timeoutMs);
+			Integer exitValue = null;
+			while (exitValue == null && System.currentTimeMillis() < deadline) {
+				try {
+					exitValue = Integer.valueOf(p.exitValue());
+				} catch (IllegalThreadStateException e) {
+					//still running
+					Thread.sleep(POLL_INTERVAL_MS);
+				}
+			}
+			if (exitValue == null || reader.isAlive()) {
+				p.destroy();
+				return new ArrayList<String>();
+			}
+			if (exitValue.intValue() != 0) {
+				return new ArrayList<String>();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			p.destroy();
+			return new ArrayList<String>();
+		}
+		synchronized (lines) {
+			return new ArrayList<String>(lines);
+		}
+	}
+
+}
@@ -0,0 +1,121 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2013 Nokia Siemens Networks Oyj, Finland.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *      Nokia Siemens Networks - initial implementation
+ *      Petri Tuononen - Initial implementation
+ *******************************************************************************/
+package org.eclipse.cdt.managedbuilder.llvm.util;
+
+import org.eclipse.cdt.managedbuilder.llvm.ui.LlvmUIPlugin;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IWorkspace;
+import org.eclipse.core.resources.IWorkspaceRunnable;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.MultiStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.SubMonitor;
+import org.eclipse.osgi.util.NLS;
+
+/**
+ * Runs an operation for several projects one after another. Every project is
+ * modified under its own scheduling rule so that CDT sees consistent project
+ * descriptions and other projects are not locked while a project is saved.
+ *
+ * The result of every project is reported as a child of the returned MultiStatus.
+ *
+ */
+public class ProjectRunner {
+
+	/**
+	 * An operation that is run for one project.
+	 */
+	public interface IProjectOperation {
+
+		/**
+		 * Runs the operation for the project. Called while the project's
+		 * scheduling rule is held.
+		 *
+		 * @param project IProject Project
+		 * @return boolean True if the project was modified
+		 * @throws CoreException if the operation fails
+		 */
+		boolean run(IProject project) throws CoreException;
+	}
+
+	/**
+	 * Runs the operation for every project in the calling thread.
+	 *
+	 * @param name Name of the operation used in progress and status messages
+	 * @param projects Projects to process
+	 * @param operation Operation to run for every project
+	 * @param monitor Progress monitor
+	 * @return MultiStatus containing the result of every modified or failed project,
+	 * or Status.CANCEL_STATUS if cancelled
+	 */
+	public static IStatus run(String name, IProject[] projects, IProjectOperation operation, IProgressMonitor monitor) {
+		SubMonitor progress = SubMonitor.convert(monitor, name, projects.length);
+		MultiStatus result = new MultiStatus(LlvmUIPlugin.PLUGIN_ID, IStatus.OK, name, null);
+		for (IProject proj : projects) {
+			if (progress.isCanceled()) {
+				return Status.CANCEL_STATUS;
+			}
+			progress.subTask(proj.getName());
+			addResult(result, runForProject(proj, operation));
+			progress.worked(1);
+		}
+		return result;
+	}
+
+	/**
+	 * Runs the operation for one project while holding the project's scheduling rule.
+	 *
+	 * @param proj IProject Project
+	 * @param operation Operation to run
+	 * @return IStatus Result of the project
+	 */
+	private static IStatus runForProject(final IProject proj, final IProjectOperation operation) {
+		final boolean[] modified = new boolean[1];
+		IWorkspaceRunnable runnable = new IWorkspaceRunnable() {
+			public void run(IProgressMonitor m) throws CoreException {
+				modified[0] = operation.run(proj);
+			}
+		};
+		try {
+			//lock only the project that is being modified
+			ResourcesPlugin.getWorkspace().run(runnable, proj, IWorkspace.AVOID_UPDATE, null);
+		} catch (CoreException e) {
+			return new Status(IStatus.ERROR, LlvmUIPlugin.PLUGIN_ID,
+					NLS.bind(Messages.ProjectRunner_1, proj.getName()), e);
+		} catch (RuntimeException e) {
+			return new Status(IStatus.ERROR, LlvmUIPlugin.PLUGIN_ID,
+					NLS.bind(Messages.ProjectRunner_1, proj.getName()), e);
+		}
+		if (modified[0]) {
+			return new Status(IStatus.OK, LlvmUIPlugin.PLUGIN_ID,
+					NLS.bind(Messages.ProjectRunner_0, proj.getName()));
+		}
+		return null;
+	}
+
+	/**
+	 * Adds the result of a project to the MultiStatus.
+	 * Unmodified projects have no result.
+	 *
+	 * @param result MultiStatus
+	 * @param status Result of a project or null
+	 */
+	private static void addResult(MultiStatus result, IStatus status) {
+		if (status != null && status.getSeverity() != IStatus.CANCEL) {
+			result.add(status);
+		}
+	}
+
+}
@@ -0,0 +1,460 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2013 Nokia Siemens Networks Oyj, Finland.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *      Nokia Siemens Networks - initial implementation
+ *      Petri Tuononen - Initial implementation
+ *******************************************************************************/
+package org.eclipse.cdt.managedbuilder.llvm.util;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+import org.eclipse.core.resources.IFolder;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceDelta;
+import org.eclipse.core.resources.IResourceDeltaVisitor;
+import org.eclipse.core.resources.IResourceProxy;
+import org.eclipse.core.resources.IResourceProxyVisitor;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.Path;
+
+/**
+ * Counts the C, C++, LLVM assembly (.ll) and LLVM bitcode (.bc) files of
+ * every project. A project is indexed once from the workspace resource tree
+ * the first time it is queried and the counts are then kept up to date from
+ * resource deltas, so queries don't touch the file system. Only if the resource
+ * tree has no source files at all the project directory is scanned on disk.
+ * Such counts are provisional: they include files that aren't in the resource
+ * tree, so they are not updated from deltas but discarded by the next delta of
+ * the project and not saved.
+ *
+ * Derived resources and build configuration output folders are ignored.
+ * The index is saved with the workspace by LlvmSaveParticipant.
+ *
+ */
+public class SourceLanguageIndex {
+
+	//source languages
+	public static final int C = 0;
+	public static final int CPP = 1;
+	public static final int LLVM_ASSEMBLY = 2;
+	public static final int LLVM_BITCODE = 3;
+	private static final int LANGUAGES = 4;
+
+	//file name extensions of each source language
+	private static final String[][] extensions = {
+		{"c"}, //$NON-NLS-1$
+		{"cpp", "cc", "cxx", "c++"}, //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+		{"ll"}, //$NON-NLS-1$
+		{"bc"} //$NON-NLS-1$
+	};
+
+	//CDT managed build project file
+	private static final IPath CPROJECT = new Path(".cproject"); //$NON-NLS-1$
+
+	//file counts by project name
+	private static final Map<String, Entry> index = new HashMap<String, Entry>();
+
+	/**
+	 * Returns true if the project contains C++ source files.
+	 *
+	 * @param proj IProject Project
+	 * @return boolean True if C++ project
+	 */
+	public static boolean containsCpp(IProject proj) {
+		return getCount(proj, CPP) > 0;
+	}
+
+	/**
+	 * Returns the number of files of the source language in the project.
+	 *
+	 * @param proj IProject Project
+	 * @param language C, CPP, LLVM_ASSEMBLY or LLVM_BITCODE
+	 * @return int Number of files
+	 */
+	public static int getCount(IProject proj, int language) {
+		if (!proj.isAccessible()) {
+			return 0;
+		}
+		synchronized (index) {
+			Entry entry = index.get(proj.getName());
+			if (entry != null) {
+				return entry.counts[language];
+			}
+		}
+		//index outside of the lock
+		Entry entry = build(proj);
+		synchronized (index) {
+			//a concurrent query may have indexed the project already
+			Entry existing = index.get(proj.getName());
+			if (existing != null) {
+				return existing.counts[language];
+			}
+			index.put(proj.getName(), entry);
+		}
+		return entry.counts[language];
+	}
+
+	/**
+	 * Removes a project from the index so that it is indexed again the next time it is queried.
+	 *
+	 * @param proj IProject Project
+	 */
+	public static void invalidate(IProject proj) {
+		synchronized (index) {
+			index.remove(proj.getName());
+		}
+	}
+
+	/**
+	 * Returns the source language of a file.
+	 *
+	 * @param fileName File name
+	 * @return int Source language or -1 if not a source file
+	 */
+	public static int getLanguage(String fileName) {
+		int dot = fileName.lastIndexOf('.');
+		if (dot < 0 || dot == fileName.length()-1) {
+			return -1;
+		}
+		String ext = fileName.substring(dot+1).toLowerCase();
+		for (int i = 0; i < extensions.length; i++) {
+			for (String e : extensions[i]) {
+				if (e.equals(ext)) {
+					return i;
+				}
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Counts the source files of the project from the workspace resource tree.
+	 *
+	 * @param proj IProject Project
+	 * @return Entry Counts of the project
+	 */
+	private static Entry build(IProject proj) {
+		IFolder[] outputFolders = LlvmToolOptionPathUtil.getOutputFolders(proj);
+		final Entry entry = new Entry(getFullPaths(outputFolders));
+		try {
+			proj.accept(new IResourceProxyVisitor() {
+				public boolean visit(IResourceProxy proxy) {
+					if (proxy.isDerived()) {
+						return false;
+					}
+					switch (proxy.getType()) {
+					case IResource.FILE:
+						entry.add(getLanguage(proxy.getName()), 1);
+						return false;
+					case IResource.FOLDER:
+						return !entry.isOutputFolder(proxy.requestFullPath());
+					default:
+						return true;
+					}
+				}
+			}, IResource.NONE);
+		} catch (CoreException e) {
+			e.printStackTrace();
+		}
+		//the files of a project created outside Eclipse may not be in the resource tree yet
+		if (entry.isEmpty() && proj.getLocation() != null) {
+			int[] counts = FileUtil.countSourceFiles(proj.getLocation().toFile(), getCanonicalPaths(outputFolders));
+			System.arraycopy(counts, 0, entry.counts, 0, LANGUAGES);
+			entry.provisional = true;
+		}
+		return entry;
+	}
+
+	/**
+	 * Returns the workspace paths of the build configuration output folders.
+	 *
+	 * @param folders IFolder[] Output folders or null if they aren't known
+	 * @return IPath[] Workspace paths, empty if the folders aren't known
+	 */
+	private static IPath[] getFullPaths(IFolder[] folders) {
+		if (folders == null) {
+			return new IPath[0];
+		}
+		IPath[] paths = new IPath[folders.length];
+		for (int i = 0; i < folders.length; i++) {
+			paths[i] = folders[i].getFullPath();
+		}
+		return paths;
+	}
+
+	/**
+	 * Returns the canonical file system paths of the build configuration output folders
+	 * so that only the output folders themselves, not source folders of the same name,
+	 * are excluded from a disk scan.
+	 *
+	 * @param folders IFolder[] Output folders or null if they aren't known
+	 * @return Set<String> Canonical paths of the folders that have a local location
+	 */
+	private static Set<String> getCanonicalPaths(IFolder[] folders) {
+		Set<String> paths = new HashSet<String>();
+		if (folders == null) {
+			return paths;
+		}
+		for (IFolder folder : folders) {
+			IPath location = folder.getLocation();
+			if (location == null) {
+				continue;
+			}
+			try {
+				paths.add(location.toFile().getCanonicalPath());
+			} catch (IOException e) {
+				//can't be reached by the scan either
+			}
+		}
+		return paths;
+	}
+
+	/**
+	 * Updates the counts of the indexed projects according to a resource delta.
+	 *
+	 * @param delta IResourceDelta Workspace root delta, may be null
+	 */
+	static void processDelta(IResourceDelta delta) {
+		if (delta == null) {
+			return;
+		}
+		try {
+			delta.accept(new IResourceDeltaVisitor() {
+				public boolean visit(IResourceDelta d) {
+					IResource res = d.getResource();
+					switch (res.getType()) {
+					case IResource.ROOT:
+						return true;
+					case IResource.PROJECT:
+						return processProjectDelta(d);
+					case IResource.FOLDER:
+						//the folder became derived or not derived
+						if ((d.getFlags() & IResourceDelta.DERIVED_CHANGED) != 0) {
+							invalidate(res.getProject());
+							return false;
+						}
+						return (d.getKind() == IResourceDelta.REMOVED || !res.isDerived())
+								&& !isOutputFolder(res);
+					case IResource.FILE:
+						processFileDelta(d);
+						return false;
+					default:
+						return false;
+					}
+				}
+			});
+		} catch (CoreException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Updates the index when a project is removed, closed or opened.
+	 * Provisional counts are discarded since the delta may add files
+	 * that were already counted on disk. The output folders of an indexed
+	 * project are resolved if they aren't known yet or .cproject has changed.
+	 *
+	 * @param d IResourceDelta Project delta
+	 * @return boolean True if the children of the project should be visited
+	 */
+	private static boolean processProjectDelta(IResourceDelta d) {
+		IProject proj = (IProject) d.getResource();
+		String name = proj.getName();
+		Entry entry;
+		synchronized (index) {
+			if (d.getKind() == IResourceDelta.REMOVED || (d.getFlags() & IResourceDelta.OPEN) != 0) {
+				index.remove(name);
+				return false;
+			}
+			entry = index.get(name);
+			if (entry != null && entry.provisional) {
+				//indexed again from the resource tree the next time it is queried
+				index.remove(name);
+				return false;
+			}
+			//only indexed projects are updated
+			if (entry == null) {
+				return false;
+			}
+			if (entry.outputFolders != null && d.findMember(CPROJECT) == null) {
+				return true;
+			}
+		}
+		//load the build info outside of the lock
+		IPath[] outputFolders = getFullPaths(LlvmToolOptionPathUtil.getOutputFolders(proj));
+		synchronized (index) {
+			entry.outputFolders = outputFolders;
+			//the project may have been invalidated meanwhile
+			return index.get(name) == entry;
+		}
+	}
+
+	/**
+	 * Updates the count of a source language when a file is added or removed.
+	 *
+	 * @param d IResourceDelta File delta
+	 */
+	private static void processFileDelta(IResourceDelta d) {
+		int language = getLanguage(d.getResource().getName());
+		if (language < 0) {
+			return;
+		}
+		int change;
+		if (d.getKind() == IResourceDelta.ADDED) {
+			if (d.getResource().isDerived()) {
+				return;
+			}
+			change = 1;
+		} else if (d.getKind() == IResourceDelta.REMOVED) {
+			change = -1;
+		} else {
+			if ((d.getFlags() & IResourceDelta.DERIVED_CHANGED) == 0) {
+				return;
+			}
+			change = d.getResource().isDerived() ? -1 : 1;
+		}
+		synchronized (index) {
+			Entry entry = index.get(d.getResource().getProject().getName());
+			if (entry != null && !entry.add(language, change)) {
+				//the counts don't match the resource tree any more
+				index.remove(d.getResource().getProject().getName());
+			}
+		}
+	}
+
+	/**
+	 * Returns true if the folder is a known build configuration output folder of an indexed project.
+	 *
+	 * @param folder IResource Folder
+	 * @return boolean
+	 */
+	private static boolean isOutputFolder(IResource folder) {
+		synchronized (index) {
+			Entry entry = index.get(folder.getProject().getName());
+			return entry != null && entry.isOutputFolder(folder.getFullPath());
+		}
+	}
+
+	/**
+	 * Restores the saved counts. Projects that have
+	 * already been indexed are not overwritten.
+	 *
+	 * @param props Saved state
+	 */
+	static void restore(Properties props) {
+		synchronized (index) {
+			for (Map.Entry<Object, Object> e : props.entrySet()) {
+				String name = (String) e.getKey();
+				IProject proj = ResourcesPlugin.getWorkspace().getRoot().getProject(name);
+				String[] values = ((String) e.getValue()).split(","); //$NON-NLS-1$
+				if (index.containsKey(name) || values.length != LANGUAGES || !proj.isAccessible()) {
+					continue;
+				}
+				//the output folders are resolved by the next delta of the project
+				Entry entry = new Entry(null);
+				try {
+					for (int i = 0; i < LANGUAGES; i++) {
+						entry.counts[i] = Integer.parseInt(values[i]);
+					}
+				} catch (NumberFormatException ex) {
+					continue;
+				}
+				index.put(name, entry);
+			}
+		}
+	}
+
+	/**
+	 * Returns the counts to be saved.
+	 *
+	 * @return Properties State
+	 */
+	static Properties getState() {
+		Properties props = new Properties();
+		synchronized (index) {
+			for (Map.Entry<String, Entry> e : index.entrySet()) {
+				if (e.getValue().provisional) {
+					continue;
+				}
+				StringBuffer sB = new StringBuffer();
+				for (int i = 0; i < LANGUAGES; i++) {
+					if (i > 0) {
+						sB.append(',');
+					}
+					sB.append(e.getValue().counts[i]);
+				}
+				props.setProperty(e.getKey(), sB.toString());
+			}
+		}
+		return props;
+	}
+
+	/**
+	 * Source file counts and output folders of one project.
+	 */
+	private static class Entry {
+
+		final int[] counts = new int[LANGUAGES];
+		//true if counted on disk instead of from the resource tree
+		boolean provisional = false;
+		//workspace paths of the output folders, null until resolved
+		IPath[] outputFolders;
+
+		Entry(IPath[] outputFolders) {
+			this.outputFolders = outputFolders;
+		}
+
+		/**
+		 * Changes the count of a source language.
+		 *
+		 * @param language Source language or -1
+		 * @param change Number of files added (negative if removed)
+		 * @return boolean False if the count would become negative
+		 */
+		boolean add(int language, int change) {
+			if (language < 0) {
+				return true;
+			}
+			if (this.counts[language] + change < 0) {
+				return false;
+			}
+			this.counts[language] += change;
+			return true;
+		}
+
+		boolean isEmpty() {
+			for (int count : this.counts) {
+				if (count > 0) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		boolean isOutputFolder(IPath path) {
+			if (this.outputFolders == null) {
+				return false;
+			}
+			for (IPath outputFolder : this.outputFolders) {
+				if (outputFolder.equals(path)) {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+
+}
@@ -0,0 +1,111 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2013 Nokia Siemens Networks Oyj, Finland.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *      Nokia Siemens Networks - initial implementation
+ *      Petri Tuononen - Initial implementation
+ *******************************************************************************/
+package org.eclipse.cdt.managedbuilder.llvm.util;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Properties;
+
+import org.eclipse.cdt.managedbuilder.llvm.ui.LlvmUIPlugin;
+
+/**
+ * Loads and saves the state files in the plug-in state location.
+ *
+ */
+final class StateFile {
+
+	/**
+	 * Constructor.
+	 */
+	private StateFile() {
+		//only static methods
+	}
+
+	/**
+	 * Returns a file in the plug-in state location or null if the plug-in isn't running.
+	 *
+	 * @param name File name
+	 * @return File State file
+	 */
+	static File get(String name) {
+		LlvmUIPlugin plugin = LlvmUIPlugin.getDefault();
+		return plugin == null ? null : plugin.getStateLocation().append(name).toFile();
+	}
+
+	/**
+	 * Loads a state file.
+	 *
+	 * @param name File name
+	 * @return Properties or null if the file doesn't exist or can't be read
+	 */
+	static Properties load(String name) {
+		File file = get(name);
+		if (file == null || !file.isFile()) {
+			return null;
+		}
+		Properties props = new Properties();
+		InputStream in = null;
+		try {
+			in = new FileInputStream(file);
+			props.load(in);
+		} catch (IOException e) {
+			e.printStackTrace();
+			return null;
+		} finally {
+			close(in);
+		}
+		return props;
+	}
+
+	/**
+	 * Saves a state file. Does nothing if the plug-in isn't running.
+	 *
+	 * @param name File name
+	 * @param props State to save
+	 */
+	static void save(String name, Properties props) {
+		File file = get(name);
+		if (file == null) {
+			return;
+		}
+		OutputStream out = null;
+		try {
+			out = new FileOutputStream(file);
+			props.store(out, null);
+		} catch (IOException e) {
+			e.printStackTrace();
+		} finally {
+			close(out);
+		}
+	}
+
+	/**
+	 * Closes a stream and ignores errors.
+	 *
+	 * @param stream Stream or null
+	 */
+	private static void close(Closeable stream) {
+		if (stream != null) {
+			try {
+				stream.close();
+			} catch (IOException e) {
+				//ignore
+			}
+		}
+	}
+
+}
@@ -0,0 +1,205 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2013 Nokia Siemens Networks Oyj, Finland.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *      Nokia Siemens Networks - initial implementation
+ *      Petri Tuononen - Initial implementation
+ *******************************************************************************/
+package org.eclipse.cdt.managedbuilder.llvm.util;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.eclipse.cdt.managedbuilder.core.IConfiguration;
+import org.eclipse.cdt.managedbuilder.core.IOption;
+import org.eclipse.cdt.managedbuilder.core.ITool;
+import org.eclipse.cdt.managedbuilder.core.IToolChain;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+
+/**
+ * Caches the LLVM Tool and its Option resolved for a build configuration and
+ * an option type (include paths, libraries or library search paths) so that the
+ * Tools and their Options don't have to be searched again for every value.
+ *
+ * An entry is discarded when the tool chain or the tool list of the
+ * configuration changes or the build settings of its project are applied.
+ * Configurations are weakly referenced.
+ *
+ */
+public class ToolOptionCache {
+
+	//resolved Tools and Options per build configuration
+	private static final Map<IConfiguration, Entry> cache = new WeakHashMap<IConfiguration, Entry>();
+
+	/**
+	 * Returns the Tool and its Option for the given option type.
+	 *
+	 * @param cf IConfiguration Build configuration
+	 * @param var Tool option's value (INCLUDE, LIB or LIB_PATH)
+	 * @return ToolOption or null if the configuration doesn't have the LLVM Tool
+	 */
+	public static ToolOption get(IConfiguration cf, int var) {
+		int fingerprint = fingerprint(cf);
+		synchronized (cache) {
+			Entry entry = cache.get(cf);
+			if (entry == null || entry.fingerprint != fingerprint) {
+				entry = new Entry(fingerprint);
+				cache.put(cf, entry);
+			}
+			if (entry.resolved[var]) {
+				return entry.options[var];
+			}
+		}
+		//resolve outside of the lock
+		ToolOption toolOption = LlvmToolOptionPathUtil.resolveToolOption(cf, var);
+		synchronized (cache) {
+			Entry entry = cache.get(cf);
+			if (entry != null && entry.fingerprint == fingerprint) {
+				entry.options[var] = toolOption;
+				entry.resolved[var] = true;
+			}
+		}
+		return toolOption;
+	}
+
+	/**
+	 * Replaces a cached Option after a new value has been set to it.
+	 * CDT may return a new Option instance when an Option is modified
+	 * for the first time in a configuration.
+	 *
+	 * @param cf IConfiguration Build configuration
+	 * @param oldOption Option that was modified
+	 * @param newOption Option returned by ManagedBuildManager.setOption, may be null
+	 */
+	public static void optionChanged(IConfiguration cf, IOption oldOption, IOption newOption) {
+		if (oldOption == newOption) {
+			return;
+		}
+		synchronized (cache) {
+			Entry entry = cache.get(cf);
+			if (entry == null) {
+				return;
+			}
+			if (newOption == null) {
+				cache.remove(cf);
+				return;
+			}
+			for (int i = 0; i < entry.options.length; i++) {
+				ToolOption toolOption = entry.options[i];
+				if (toolOption != null && toolOption.getOption() == oldOption) {
+					entry.options[i] = new ToolOption(toolOption.getTool(), newOption);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Removes the cached Tools and Options of a build configuration.
+	 *
+	 * @param cf IConfiguration Build configuration
+	 */
+	public static void invalidate(IConfiguration cf) {
+		synchronized (cache) {
+			cache.remove(cf);
+		}
+	}
+
+	/**
+	 * Removes the cached Tools and Options of every build configuration of a project.
+	 *
+	 * @param proj IProject Project
+	 */
+	public static void invalidate(IProject proj) {
+		synchronized (cache) {
+			for (Iterator<IConfiguration> it = cache.keySet().iterator(); it.hasNext();) {
+				IResource owner = it.next().getOwner();
+				if (owner == null || proj.equals(owner.getProject())) {
+					it.remove();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Removes all cached Tools and Options.
+	 */
+	public static void clear() {
+		synchronized (cache) {
+			cache.clear();
+		}
+	}
+
+	/**
+	 * Computes a value that changes when the tool chain or the tools
+	 * of the configuration change.
+	 *
+	 * @param cf IConfiguration Build configuration
+	 * @return int fingerprint
+	 */
+	private static int fingerprint(IConfiguration cf) {
+		int hash = 17;
+		IToolChain toolChain = cf.getToolChain();
+		if (toolChain != null) {
+			hash = 31 * hash + System.identityHashCode(toolChain);
+			hash = 31 * hash + String.valueOf(toolChain.getId()).hashCode();
+		}
+		ITool[] tools = cf.getTools();
+		for (ITool tool : tools) {
+			hash = 31 * hash + String.valueOf(tool.getId()).hashCode();
+		}
+		return hash;
+	}
+
+	/**
+	 * A Tool and its Option.
+	 */
+	public static class ToolOption {
+
+		private final ITool tool;
+		private final IOption option;
+
+		ToolOption(ITool tool, IOption option) {
+			this.tool = tool;
+			this.option = option;
+		}
+
+		/**
+		 * Returns the Tool.
+		 *
+		 * @return ITool Tool
+		 */
+		public ITool getTool() {
+			return this.tool;
+		}
+
+		/**
+		 * Returns the Option of the Tool.
+		 *
+		 * @return IOption Option or null if the Tool doesn't have the option
+		 */
+		public IOption getOption() {
+			return this.option;
+		}
+	}
+
+	/**
+	 * Cached Tools and Options of one build configuration.
+	 */
+	private static class Entry {
+
+		final int fingerprint;
+		final ToolOption[] options = new ToolOption[LlvmToolOptionPathUtil.LIB_PATH + 1];
+		final boolean[] resolved = new boolean[LlvmToolOptionPathUtil.LIB_PATH + 1];
+
+		Entry(int fingerprint) {
+			this.fingerprint = fingerprint;
+		}
+	}
+
+}
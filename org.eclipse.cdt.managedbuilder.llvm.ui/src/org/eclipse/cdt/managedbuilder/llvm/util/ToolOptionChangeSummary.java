@@ -0,0 +1,155 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2013 Nokia Siemens Networks Oyj, Finland.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *      Nokia Siemens Networks - initial implementation
+ *      Petri Tuononen - Initial implementation
+ *******************************************************************************/
+package org.eclipse.cdt.managedbuilder.llvm.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.eclipse.core.resources.IProject;
+
+/**
+ * Summary of the Tool option values that were actually added or removed
+ * when a batch was applied. Only configurations whose option values differ
+ * from the previous values are recorded. The summary is thread safe.
+ *
+ */
+public class ToolOptionChangeSummary {
+
+	//changes in the order they were recorded
+	private final List<Change> changes = new ArrayList<Change>();
+
+	/**
+	 * Records a change.
+	 *
+	 * @param change Change of one Tool option in one build configuration
+	 */
+	synchronized void add(Change change) {
+		this.changes.add(change);
+	}
+
+	/**
+	 * Returns all changes.
+	 *
+	 * @return List of changes
+	 */
+	public synchronized List<Change> getChanges() {
+		return Collections.unmodifiableList(new ArrayList<Change>(this.changes));
+	}
+
+	/**
+	 * Returns the projects that were modified.
+	 *
+	 * @return Set of projects
+	 */
+	public synchronized Set<IProject> getChangedProjects() {
+		Set<IProject> projects = new LinkedHashSet<IProject>();
+		for (Change change : this.changes) {
+			projects.add(change.getProject());
+		}
+		return projects;
+	}
+
+	/**
+	 * Returns true if nothing was changed.
+	 *
+	 * @return boolean
+	 */
+	public synchronized boolean isEmpty() {
+		return this.changes.isEmpty();
+	}
+
+	@Override
+	public synchronized String toString() {
+		StringBuffer sB = new StringBuffer();
+		for (Change change : this.changes) {
+			sB.append(change.toString());
+			sB.append('\n');
+		}
+		return sB.toString();
+	}
+
+	/**
+	 * Values added to and removed from one Tool option in one build configuration.
+	 */
+	public static class Change {
+
+		private final IProject project;
+		private final String configurationId;
+		private final int var;
+		private final String[] added;
+		private final String[] removed;
+
+		Change(IProject project, String configurationId, int var, String[] added, String[] removed) {
+			this.project = project;
+			this.configurationId = configurationId;
+			this.var = var;
+			this.added = added;
+			this.removed = removed;
+		}
+
+		/**
+		 * Returns the project of the build configuration.
+		 *
+		 * @return IProject Project
+		 */
+		public IProject getProject() {
+			return this.project;
+		}
+
+		/**
+		 * Returns the id of the build configuration.
+		 *
+		 * @return String configuration id
+		 */
+		public String getConfigurationId() {
+			return this.configurationId;
+		}
+
+		/**
+		 * Returns the Tool option type.
+		 *
+		 * @return int INCLUDE, LIB or LIB_PATH
+		 */
+		public int getVar() {
+			return this.var;
+		}
+
+		/**
+		 * Returns the values that were added.
+		 *
+		 * @return String[]
+		 */
+		public String[] getAdded() {
+			return this.added.clone();
+		}
+
+		/**
+		 * Returns the values that were removed.
+		 *
+		 * @return String[]
+		 */
+		public String[] getRemoved() {
+			return this.removed.clone();
+		}
+
+		@Override
+		public String toString() {
+			return this.project.getName() + " [" + this.configurationId + "] option " + this.var //$NON-NLS-1$ //$NON-NLS-2$
+				+ ": +" + LlvmToolOptionPathUtil.arrayToString(this.added) //$NON-NLS-1$
+				+ " -" + LlvmToolOptionPathUtil.arrayToString(this.removed); //$NON-NLS-1$
+		}
+	}
+
+}